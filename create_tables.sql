@@ -2,10 +2,11 @@
 -- SparkHub 数据库表结构
 -- ----------------------------
 -- 数据库: sparkhub
--- 包含 11 个表的完整创建脚本
+-- 包含 12 个表的完整创建脚本
 -- 顺序: 1. role -> 2. user -> 3. user_role -> 4. category -> 5. project ->
 --       6. project_reward -> 7. backing -> 8. user_favorite ->
---       9. project_comment -> 10. project_comment_like -> 11. notification
+--       9. project_comment -> 10. project_comment_like -> 11. notification ->
+--       12. notification_archive
 -- ----------------------------
 
 SET NAMES utf8mb4;
@@ -14,6 +15,7 @@ SET FOREIGN_KEY_CHECKS = 0;
 -- ----------------------------
 -- (可选) 按依赖反向顺序删除表
 -- ----------------------------
+DROP TABLE IF EXISTS `notification_archive`;
 DROP TABLE IF EXISTS `notification`;
 DROP TABLE IF EXISTS `project_comment_like`;
 DROP TABLE IF EXISTS `project_comment`;
@@ -62,6 +64,7 @@ CREATE TABLE `user_role` (
   `role_id` BIGINT NOT NULL COMMENT '角色ID (FK)',
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_user_role` (`user_id`, `role_id`),
+  KEY `idx_user_role_role` (`role_id`, `user_id`),
   CONSTRAINT `fk_userrole_user` FOREIGN KEY (`user_id`) REFERENCES `user` (`id`) ON DELETE CASCADE,
   CONSTRAINT `fk_userrole_role` FOREIGN KEY (`role_id`) REFERENCES `role` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户角色关联表';
@@ -91,9 +94,18 @@ CREATE TABLE `project` (
   `end_time` TIMESTAMP NOT NULL COMMENT '截止时间',
   `status` INT NOT NULL DEFAULT '0' COMMENT '项目状态 (0=审核中, 1=众筹中, 2=成功, 3=失败)',
   `create_time` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `funded_ratio` DECIMAL(12,4) AS (IF(`goal_amount` > 0, `current_amount` / `goal_amount`, 0)) STORED COMMENT '完成度 (生成列, 用于排序)',
   PRIMARY KEY (`id`),
   KEY `idx_project_creator` (`creator_id`),
-  KEY `idx_project_category` (`category_id`),
+  KEY `idx_project_category_status_create` (`category_id`, `status`, `create_time`),
+  KEY `idx_project_category_status_end` (`category_id`, `status`, `end_time`),
+  KEY `idx_project_category_status_amount` (`category_id`, `status`, `current_amount`),
+  KEY `idx_project_category_status_ratio` (`category_id`, `status`, `funded_ratio`),
+  KEY `idx_project_status_create` (`status`, `create_time`),
+  KEY `idx_project_status_end` (`status`, `end_time`),
+  KEY `idx_project_status_amount` (`status`, `current_amount`),
+  KEY `idx_project_status_ratio` (`status`, `funded_ratio`),
+  KEY `idx_project_create_time` (`create_time`),
   CONSTRAINT `fk_project_user` FOREIGN KEY (`creator_id`) REFERENCES `user` (`id`) ON DELETE CASCADE,
   CONSTRAINT `fk_project_category` FOREIGN KEY (`category_id`) REFERENCES `category` (`id`) ON DELETE RESTRICT
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='项目表';
@@ -128,7 +140,8 @@ CREATE TABLE `backing` (
   PRIMARY KEY (`id`),
   KEY `idx_backing_backer` (`backer_id`),
   KEY `idx_backing_project` (`project_id`),
-  KEY `idx_backing_reward` (`reward_id`),
+  KEY `idx_backing_reward_status` (`reward_id`, `status`, `create_time`),
+  KEY `idx_backing_status_create` (`status`, `create_time`),
   CONSTRAINT `fk_backing_user` FOREIGN KEY (`backer_id`) REFERENCES `user` (`id`) ON DELETE CASCADE,
   CONSTRAINT `fk_backing_project` FOREIGN KEY (`project_id`) REFERENCES `project` (`id`) ON DELETE CASCADE,
   CONSTRAINT `fk_backing_reward` FOREIGN KEY (`reward_id`) REFERENCES `project_reward` (`id`) ON DELETE CASCADE
@@ -158,9 +171,11 @@ CREATE TABLE `project_comment` (
   `parent_id` BIGINT DEFAULT NULL COMMENT '回复的父评论ID',
   `content` TEXT NOT NULL COMMENT '评论内容',
   `like_count` INT NOT NULL DEFAULT '0' COMMENT '点赞总数',
+  `reply_count` INT NOT NULL DEFAULT '0' COMMENT '直接回复数',
   `create_time` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   PRIMARY KEY (`id`),
-  KEY `idx_comment_project` (`project_id`),
+  KEY `idx_comment_project_parent_time` (`project_id`, `parent_id`, `create_time`),
+  KEY `idx_comment_project_parent_likes` (`project_id`, `parent_id`, `like_count`),
   KEY `idx_comment_user` (`user_id`),
   KEY `idx_comment_parent` (`parent_id`),
   CONSTRAINT `fk_comment_project` FOREIGN KEY (`project_id`) REFERENCES `project` (`id`) ON DELETE CASCADE,
@@ -194,10 +209,35 @@ CREATE TABLE `notification` (
   `is_read` TINYINT(1) NOT NULL DEFAULT '0' COMMENT '是否已读 (0=未读, 1=已读)',
   `create_time` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
   `sender_id` BIGINT DEFAULT NULL COMMENT '触发通知的用户ID (FK)',
+  `aggregate_key` VARCHAR(100) DEFAULT NULL COMMENT '聚合键 (类型:目标:时间窗口), 同一键的互动合并为一条',
+  `actor_count` INT NOT NULL DEFAULT '1' COMMENT '合并的互动次数',
+  `aggregate_open` VARCHAR(100) GENERATED ALWAYS AS (IF(`is_read` = 0, `aggregate_key`, NULL)) VIRTUAL COMMENT '未读时等于聚合键, 已读后为 NULL',
   PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_notification_aggregate` (`recipient_id`, `aggregate_open`),
   KEY `idx_recipient_id_read_time` (`recipient_id`, `is_read`, `create_time`),
-  KEY `fk_notification_recipient` (`recipient_id`),
+  KEY `idx_notification_recipient_create` (`recipient_id`, `create_time`),
+  KEY `idx_notification_read_create` (`is_read`, `create_time`),
   KEY `fk_notification_sender` (`sender_id`),
   CONSTRAINT `fk_notification_recipient` FOREIGN KEY (`recipient_id`) REFERENCES `user` (`id`) ON DELETE CASCADE,
   CONSTRAINT `fk_notification_sender` FOREIGN KEY (`sender_id`) REFERENCES `user` (`id`) ON DELETE SET NULL
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户通知表';
\ No newline at end of file
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户通知表';
+
+-- ----------------------------
+-- 12. 通知归档表 (notification_archive)
+-- 超过保留期的已读通知由定时任务分批移入此表, 保持 notification 表较小
+-- ----------------------------
+CREATE TABLE `notification_archive` (
+  `id` BIGINT NOT NULL COMMENT '原通知ID',
+  `recipient_id` BIGINT NOT NULL COMMENT '接收通知的用户ID',
+  `type` VARCHAR(50) NOT NULL COMMENT '通知类型',
+  `content` TEXT NOT NULL COMMENT '通知内容',
+  `link_url` VARCHAR(255) DEFAULT NULL COMMENT '点击跳转的链接',
+  `is_read` TINYINT(1) NOT NULL DEFAULT '1' COMMENT '是否已读',
+  `create_time` TIMESTAMP NOT NULL COMMENT '原通知的创建时间',
+  `sender_id` BIGINT DEFAULT NULL COMMENT '触发通知的用户ID',
+  `aggregate_key` VARCHAR(100) DEFAULT NULL COMMENT '聚合键',
+  `actor_count` INT NOT NULL DEFAULT '1' COMMENT '合并的互动次数',
+  `archive_time` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '归档时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_archive_recipient_create` (`recipient_id`, `create_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户通知归档表';
\ No newline at end of file
@@ -172,6 +172,12 @@ INSERT INTO `project_comment` (`id`, `project_id`, `user_id`, `parent_id`, `cont
 (2008, 11, 105, NULL, '游戏在三天前已经通关了，非常棒！强烈推荐！期待 DLC！', 2, DATE_SUB(NOW(), INTERVAL 3 DAY)),
 (2009, 11, 103, 2008, '哈哈，感谢支持！没想到这么快就通关了！DLC 已经在规划中了，敬请期待！', 2, DATE_SUB(NOW(), INTERVAL 2 DAY));
 
+-- 根据上面的数据计算每条评论的直接回复数
+UPDATE `project_comment` c
+JOIN (SELECT `parent_id`, COUNT(*) AS `cnt` FROM `project_comment` WHERE `parent_id` IS NOT NULL GROUP BY `parent_id`) r
+  ON c.`id` = r.`parent_id`
+SET c.`reply_count` = r.`cnt`;
+
 -- ----------------------------
 -- 10. 插入评论点赞表 (project_comment_like)
 -- ----------------------------
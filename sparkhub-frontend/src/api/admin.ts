@@ -6,6 +6,8 @@ import type {
   AdminProjectPage,
   ProjectAuditDTO,
   AdminUserPage,
+  AdminUserSearchParams,
+  AdminUserCursorPage,
   UserAdminDTO,
   UserRoleUpdateDTO,
 } from './types/admin'
@@ -47,6 +49,18 @@ export const getAdminUserListApi = (params: { pageNum?: number; pageSize?: numbe
   }) as unknown as Promise<AdminUserPage>
 }
 
+/**
+ * @description [Admin] 搜索用户 (用户名/邮箱前缀 + 角色过滤, 游标分页)
+ * (对应 GET /api/admin/users?q=&role=&after=)
+ */
+export const searchAdminUsersApi = (params: AdminUserSearchParams) => {
+  return service<BackendResult<AdminUserCursorPage>>({
+    url: '/admin/users',
+    method: 'GET',
+    params: params,
+  }) as unknown as Promise<AdminUserCursorPage>
+}
+
 /**
  * @description [Admin] 更新用户角色
  * (对应 PUT /api/admin/users/{id}/role)
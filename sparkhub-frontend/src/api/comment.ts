@@ -1,6 +1,6 @@
 import service from '@/utils/request'
 import type { BackendResult } from './types/common'
-import type { CommentDetailDTO, CommentCreateDTO } from './types/comment'
+import type { CommentDetailDTO, CommentCreateDTO, CommentCursorPage } from './types/comment'
 
 /**
  * @description [新] 获取指定项目的所有评论 (支持排序)
@@ -16,6 +16,36 @@ export const getCommentsApi = (projectId: number, sortBy: 'time' | 'hotness' = '
   }) as unknown as Promise<CommentDetailDTO[]>
 }
 
+/**
+ * @description 游标分页获取项目的顶级评论 (附带 replyCount, 不含回复)
+ * (GET /api/projects/{projectId}/comments?after=)
+ * @param after - 第一页传空串, 之后传上一页的 nextCursor
+ */
+export const getTopLevelCommentsApi = (
+  projectId: number,
+  sortBy: 'time' | 'hotness',
+  after: string,
+  pageSize = 10,
+) => {
+  return service<BackendResult<CommentCursorPage>>({
+    url: `/projects/${projectId}/comments`,
+    method: 'GET',
+    params: { sortBy, after, pageSize },
+  }) as unknown as Promise<CommentCursorPage>
+}
+
+/**
+ * @description 游标分页获取一条评论的直接回复 (按时间正序)
+ * (GET /api/projects/{projectId}/comments/{commentId}/replies)
+ */
+export const getRepliesApi = (projectId: number, commentId: number, after: string, pageSize = 10) => {
+  return service<BackendResult<CommentCursorPage>>({
+    url: `/projects/${projectId}/comments/${commentId}/replies`,
+    method: 'GET',
+    params: { after, pageSize },
+  }) as unknown as Promise<CommentCursorPage>
+}
+
 /**
  * @description [新] 发表一条新评论 (或回复)
  * (POST /api/projects/{projectId}/comments)
@@ -4,6 +4,8 @@ import type {
   PageInfo,
   NotificationUnreadCountDTO,
   GetNotificationsParams,
+  GetNotificationsAfterParams,
+  CursorPage,
 } from './types/notification'
 
 /**
@@ -25,6 +27,17 @@ export const getNotificationsApi = (
   return request.get('/notifications', { params })
 }
 
+/**
+ * B2. 获取我的通知列表 (游标分页 + 过滤, 用于 "加载更多")
+ * GET /api/notifications?after=
+ * @param params - 包含 after, pageSize, filter 的查询参数
+ */
+export const getNotificationsAfterApi = (
+  params: GetNotificationsAfterParams,
+): Promise<CursorPage<NotificationDTO>> => {
+  return request.get('/notifications', { params })
+}
+
 /**
  * C. 将单条通知标记为已读
  * POST /api/notifications/{id}/read
@@ -41,3 +54,66 @@ export const markNotificationAsReadApi = (id: number): Promise<null> => {
 export const markAllNotificationsAsReadApi = (): Promise<null> => {
   return request.post('/notifications/read-all')
 }
+
+/**
+ * E. 订阅实时推送 (SSE)
+ * GET /api/notifications/stream
+ * (EventSource 无法携带 Authorization Header, 因此用 fetch 读取事件流)
+ * 断开后自动重连 (指数退避, 最长 30 秒); 返回值用于关闭订阅
+ * @param token - 当前用户的 JWT
+ * @param onEvent - 收到事件时的回调 (event 为 "notification" 或 "unread")
+ */
+export const subscribeNotificationsApi = (
+  token: string,
+  onEvent: (event: string, data: string) => void,
+): (() => void) => {
+  const controller = new AbortController()
+  let retryDelay = 1000
+
+  const connect = async () => {
+    while (!controller.signal.aborted) {
+      try {
+        const res = await fetch(`${request.defaults.baseURL}/notifications/stream`, {
+          headers: { Authorization: `Bearer ${token}`, Accept: 'text/event-stream' },
+          signal: controller.signal,
+        })
+        if (res.status === 401 || res.status === 403) {
+          return // 登录已失效, 不再重连
+        }
+        if (!res.ok || !res.body) {
+          throw new Error(`HTTP ${res.status}`)
+        }
+        retryDelay = 1000
+
+        // 按空行切分事件, 解析 "event:" 和 "data:" 行 (":" 开头的心跳行忽略)
+        const reader = res.body.pipeThrough(new TextDecoderStream()).getReader()
+        let buffer = ''
+        for (;;) {
+          const { value, done } = await reader.read()
+          if (done) break
+          buffer += value
+          let boundary
+          while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+            const block = buffer.slice(0, boundary)
+            buffer = buffer.slice(boundary + 2)
+            let event = 'message'
+            const data: string[] = []
+            for (const line of block.split('\n')) {
+              if (line.startsWith('event:')) event = line.slice(6).trim()
+              else if (line.startsWith('data:')) data.push(line.slice(5).replace(/^ /, ''))
+            }
+            if (data.length > 0) onEvent(event, data.join('\n'))
+          }
+        }
+      } catch (err: any) {
+        if (controller.signal.aborted) return
+        console.error('通知推送连接断开:', err.message)
+      }
+      await new Promise((resolve) => setTimeout(resolve, retryDelay))
+      retryDelay = Math.min(retryDelay * 2, 30000)
+    }
+  }
+
+  connect()
+  return () => controller.abort()
+}
@@ -20,6 +20,18 @@ export function getProjectListApi(params: ProjectListParams) {
   }) as unknown as Promise<PageInfo<Project>>
 }
 
+/**
+ * @description 全文搜索项目 (按相关度排序, 分页)
+ * @param q 关键词
+ */
+export function searchProjectsApi(q: string, pageNum = 1, pageSize = 10) {
+  return service<PageInfo<Project>>({
+    url: '/projects/search', // 对应 GET /api/projects/search
+    method: 'GET',
+    params: { q, pageNum, pageSize },
+  }) as unknown as Promise<PageInfo<Project>>
+}
+
 /**
  * @description 获取项目详情 (公开)
  * @param id 项目 ID
@@ -1,5 +1,6 @@
 import type { ProjectSummaryDTO } from './project' // 导入项目摘要
 import type { PageInfo } from './common'
+import type { CursorPage } from './notification'
 
 /**
  * [Admin] 获取项目列表 (用于审核)
@@ -37,6 +38,19 @@ export interface UserAdminDTO {
 // (假设返回的是 UserAdminDTO 的分页)
 export type AdminUserPage = PageInfo<UserAdminDTO>
 
+/**
+ * [Admin] 搜索用户的查询参数 (游标分页)
+ * (对应 GET /api/admin/users?q=&role=&after=)
+ */
+export interface AdminUserSearchParams {
+  after: string // 第一页传空串, 之后传上一页的 nextCursor
+  pageSize?: number
+  q?: string // 用户名或邮箱前缀
+  role?: string // e.g., "ROLE_CREATOR"
+}
+
+export type AdminUserCursorPage = CursorPage<UserAdminDTO>
+
 /**
  * [Admin] 更新用户角色 DTO
  * (对应 PUT /api/admin/users/{id}/role)
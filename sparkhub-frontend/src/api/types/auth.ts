@@ -13,6 +13,7 @@ export interface LoginDTO {
  */
 export interface LoginResponse {
   token: string
+  refreshToken: string
   user: UserDTO
 }
 
@@ -16,7 +16,17 @@ export interface CommentDetailDTO {
 
   // --- 嵌套评论 ---
   parentId: number | null // (如果是顶级评论, 此值为 null)
-  replies: CommentDetailDTO[] // (此评论下的所有回复)
+  replies: CommentDetailDTO[] // (此评论下的所有回复; 分页模式下为空, 通过回复接口加载)
+  replyCount: number // 直接回复数
+}
+
+/**
+ * 评论的游标分页结果 (对应后端 CursorPage)
+ */
+export interface CommentCursorPage {
+  list: CommentDetailDTO[]
+  nextCursor: string | null
+  hasMore: boolean
 }
 
 /**
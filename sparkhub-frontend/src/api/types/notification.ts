@@ -30,7 +30,8 @@ export interface NotificationDTO {
   type: string // 通知的机器可读类型
   linkUrl: string // 点击通知后应跳转的前端 URL
   isRead: boolean // 是否已读
-  createTime: string // (ISO 8601 格式)
+  createTime: string // (ISO 8601 格式, 聚合通知为最近一次互动的时间)
+  actorCount: number // 合并的互动次数 (普通通知为 1)
 
   // --- 互动通知 专属字段 ---
   senderId: number | null // 触发此通知的用户ID
@@ -55,3 +56,21 @@ export interface GetNotificationsParams {
   pageSize?: number
   filter?: NotificationFilter
 }
+
+/**
+ * API: GET /api/notifications?after= 的查询参数类型 (游标分页)
+ */
+export interface GetNotificationsAfterParams {
+  after: string // 第一页传空串, 之后传上一页的 nextCursor
+  pageSize?: number
+  filter?: NotificationFilter
+}
+
+/**
+ * 游标分页结果 (对应后端 CursorPage)
+ */
+export interface CursorPage<T> {
+  list: T[]
+  nextCursor: string | null
+  hasMore: boolean
+}
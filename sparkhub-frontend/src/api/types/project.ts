@@ -31,6 +31,7 @@ export interface Project {
   endTime: string // 假设后端返回字符串日期
   rewards?: Reward[] // 可选的回报档位列表
   isFavorite?: boolean // 是否已收藏
+  isBacked?: boolean // 当前用户是否已支持
   categoryId: number | null
   creatorId: number
   backerIds: number[] // 支持者用户 ID 列表
@@ -43,6 +44,7 @@ export interface ProjectListParams {
   pageNum?: number
   pageSize?: number
   categoryId?: number // (可选) 按分类筛选
+  sort?: 'newest' | 'endingSoon' | 'mostFunded' | 'percentFunded' // (可选) 排序方式, 默认 newest
   status?: number // (可选) 按状态筛选
   // ... 其他可能的搜索字段
 }
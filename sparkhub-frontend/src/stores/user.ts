@@ -9,6 +9,8 @@ export const useUserStore = defineStore(
   () => {
     // 1. 状态 (State)
     const token = ref<string | null>(null)
+    // 用于换取新 token 的 Refresh Token
+    const refreshToken = ref<string | null>(null)
     // 直接存储 User DTO 对象
     const userInfo = ref<UserDTO | null>(null)
     // 未读通知计数
@@ -38,13 +40,22 @@ export const useUserStore = defineStore(
     // setLoginSession
     function setLoginSession(data: LoginResponse) {
       token.value = data.token
+      refreshToken.value = data.refreshToken
       userInfo.value = data.user
       unreadCount.value = 0
     }
 
+    // 刷新 token 后更新 (保留未读数)
+    function updateTokens(data: LoginResponse) {
+      token.value = data.token
+      refreshToken.value = data.refreshToken
+      userInfo.value = data.user
+    }
+
     // clearLoginSession
     function clearLoginSession() {
       token.value = null
+      refreshToken.value = null
       userInfo.value = null
       unreadCount.value = 0
     }
@@ -70,9 +81,11 @@ export const useUserStore = defineStore(
 
     return {
       token,
+      refreshToken,
       userInfo,
       unreadCount,
       setLoginSession,
+      updateTokens,
       clearLoginSession,
       setUserAvatar,
       setUnreadCount,
@@ -84,7 +97,7 @@ export const useUserStore = defineStore(
     }
   },
   {
-    // 持久化所有状态 (token, userInfo, unreadCount)
+    // 持久化所有状态 (token, refreshToken, userInfo, unreadCount)
     persist: true,
   },
 )
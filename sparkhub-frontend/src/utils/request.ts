@@ -1,6 +1,7 @@
-import axios, { type AxiosResponse, type AxiosError } from 'axios'
+import axios, { type AxiosResponse, type AxiosError, type InternalAxiosRequestConfig } from 'axios'
 import { useUserStore } from '@/stores/user'
 import type { BackendResult } from '@/api/types/common'
+import type { LoginResponse } from '@/api/types/auth'
 import { ElMessage } from 'element-plus'
 import router from '@/router' // 1. 引入 router
 
@@ -29,6 +30,34 @@ service.interceptors.request.use(
   },
 )
 
+// 用 Refresh Token 换取新的访问 Token (并发的失败请求共用同一次刷新)
+let refreshing: Promise<boolean> | null = null
+function refreshAccessToken(): Promise<boolean> {
+  const userStore = useUserStore()
+  if (!userStore.refreshToken) {
+    return Promise.resolve(false)
+  }
+  if (!refreshing) {
+    // 直接使用 axios (不经过本实例的拦截器, 避免递归)
+    refreshing = axios
+      .post<BackendResult<LoginResponse>>(`${service.defaults.baseURL}/auth/refresh`, {
+        refreshToken: userStore.refreshToken,
+      })
+      .then((res) => {
+        if (res.data.code === 200) {
+          userStore.updateTokens(res.data.data)
+          return true
+        }
+        return false
+      })
+      .catch(() => false)
+      .finally(() => {
+        refreshing = null
+      })
+  }
+  return refreshing
+}
+
 // 3. 响应拦截器 (Response Interceptor)
 service.interceptors.response.use(
   /**
@@ -64,7 +93,17 @@ service.interceptors.response.use(
   /**
    * HTTP 网络错误处理 (例如 404, 503, CORS 错误等)
    */
-  (error: AxiosError) => {
+  async (error: AxiosError) => {
+    // 访问 Token 过期或被撤销 (无状态模式): 刷新一次后重试原请求
+    const config = error.config as (InternalAxiosRequestConfig & { _retried?: boolean }) | undefined
+    const status = error.response?.status
+    if ((status === 401 || status === 403) && config && !config._retried && !config.url?.startsWith('/auth/')) {
+      config._retried = true
+      if (await refreshAccessToken()) {
+        return service(config)
+      }
+    }
+
     // 3. 处理 HTTP 网络层面的错误
     let message = ''
     if (error.response) {
@@ -80,6 +119,10 @@ service.interceptors.response.use(
         case 404:
           message = '请求的资源未找到'
           break
+        case 429:
+          // 登录限流等: 使用后端返回的提示
+          message = (error.response.data as BackendResult<unknown>)?.message || '请求过于频繁，请稍后再试'
+          break
         case 500:
           message = '服务器内部错误'
           break
@@ -0,0 +1,432 @@
+package com.pot.sparkhub.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pot.sparkhub.common.Cursor;
+import com.pot.sparkhub.dto.CommentDetailDTO;
+import com.pot.sparkhub.mapper.ProjectCommentMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 项目评论的 Redis 缓存 (按项目整体加载, 写操作原地修补)
+ *
+ * 每个项目的结构 (sparkhub:cache:comment:{projectId}:*):
+ *   node  Hash  评论ID -> 评论内容 (JSON, 不含计数)
+ *   count Hash  "l{评论ID}" -> 点赞数, "r{评论ID}" -> 回复数
+ *   time  ZSet  顶级评论, 成员 "{创建时间秒}:{评论ID}" (补零, 按字典序即按时间排序)
+ *   hot   ZSet  顶级评论, 分数 = 点赞数 * 2^32 + 评论ID (分数唯一, 点赞时 ZINCRBY 原地调整)
+ *   reply ZSet  回复, 成员 "{父评论ID}:{创建时间秒}:{评论ID}" (同一父评论的回复按字典序连续)
+ *   loaded      标记整个结构已完整加载; 不存在时读取回源数据库并重建
+ *
+ * 1. 读取: 一次脚本调用取一页 (范围查询 + 内容 + 计数), 点赞状态由调用方按页叠加
+ * 2. 发表评论、点赞写回数据库 (CommentLikeFlusher) 后, 在事务提交后修补结构;
+ *    每次修补都作废正在进行的重建 (重建读取的快照可能不含本次修改); 结构未加载时不写入半成品
+ * 3. 只在 loaded 不存在时重建 (取锁和检查在同一个脚本中), 读取方不会看到重建中的半成品
+ * 4. 用户名/头像的变化不会修补, 最多在 TTL 后刷新
+ */
+@Component
+public class CommentCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentCache.class);
+
+    private static final String KEY_PREFIX = "sparkhub:cache:comment:";
+
+    // hot 分数中点赞数的倍率 (评论ID < 2^32, 点赞数 < 2^21 时分数在 double 的精确范围内)
+    private static final long HOT_SCALE = 1L << 32;
+
+    // 重建锁的有效期 (毫秒)
+    private static final long BUILD_LOCK_MILLIS = 30000;
+
+    // 数据 key 比 loaded 标记多保留的时间: 保证标记先于数据过期, 不会读到不完整的结构
+    private static final long DATA_GRACE_MILLIS = 60000;
+
+    /**
+     * 把评论ID列表展开为 [内容, 点赞数, 回复数, ...] (公用的 Lua 函数)
+     */
+    private static final String COLLECT =
+            "local function collect(ids) " +
+            "  local out = {} " +
+            "  for _, id in ipairs(ids) do " +
+            "    out[#out + 1] = redis.call('HGET', KEYS[3], id) or '' " +
+            "    out[#out + 1] = redis.call('HGET', KEYS[4], 'l' .. id) or '0' " +
+            "    out[#out + 1] = redis.call('HGET', KEYS[4], 'r' .. id) or '0' " +
+            "  end " +
+            "  return out " +
+            "end ";
+
+    /**
+     * 按成员字典序取一页 (KEYS: loaded, 索引, node, count; ARGV: 起点, 终点, 数量, 方向)
+     * 成员的最后一段是评论ID; 未加载时返回 nil
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> READ_LEX_SCRIPT = new DefaultRedisScript<>(
+            COLLECT +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return false end " +
+            "local members " +
+            "if ARGV[4] == 'desc' then " +
+            "  members = redis.call('ZREVRANGEBYLEX', KEYS[2], ARGV[1], ARGV[2], 'LIMIT', 0, ARGV[3]) " +
+            "else " +
+            "  members = redis.call('ZRANGEBYLEX', KEYS[2], ARGV[1], ARGV[2], 'LIMIT', 0, ARGV[3]) " +
+            "end " +
+            "local ids = {} " +
+            "for i, m in ipairs(members) do ids[i] = string.match(m, '(%d+)$') end " +
+            "return collect(ids)",
+            List.class);
+
+    /**
+     * 按分数倒序取一页 (KEYS: loaded, hot, node, count; ARGV: 最大分数, 数量)
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> READ_HOT_SCRIPT = new DefaultRedisScript<>(
+            COLLECT +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return false end " +
+            "return collect(redis.call('ZREVRANGEBYSCORE', KEYS[2], ARGV[1], '-inf', 'LIMIT', 0, ARGV[2]))",
+            List.class);
+
+    /**
+     * 取得重建锁 (KEYS: loaded, building; ARGV: 令牌, 锁有效期)
+     * 与检查 loaded 在同一个脚本中: 其他请求刚完成重建时不再重建 (重建的 DEL + 写入不是原子的, 不能覆盖已加载的结构)
+     * @return 1 = 取得锁, 0 = 其他请求正在重建, 2 = 已加载
+     */
+    private static final DefaultRedisScript<Long> LOCK_BUILD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 2 end " +
+            "if redis.call('SET', KEYS[2], ARGV[1], 'NX', 'PX', ARGV[2]) then return 1 end " +
+            "return 0",
+            Long.class);
+
+    /**
+     * 新增一条评论 (KEYS: loaded, building, node, count, time, hot, reply;
+     * ARGV: 评论ID, 内容, time 成员, hot 分数, 父评论ID (顶级为空串), reply 成员)
+     */
+    private static final DefaultRedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[2]) " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "local ttl = redis.call('PTTL', KEYS[1]) + " + DATA_GRACE_MILLIS + " " +
+            "redis.call('HSET', KEYS[3], ARGV[1], ARGV[2]) " +
+            "redis.call('PEXPIRE', KEYS[3], ttl) " +
+            "if ARGV[5] == '' then " +
+            "  redis.call('ZADD', KEYS[5], 0, ARGV[3]) " +
+            "  redis.call('ZADD', KEYS[6], ARGV[4], ARGV[1]) " +
+            "  redis.call('PEXPIRE', KEYS[5], ttl) " +
+            "  redis.call('PEXPIRE', KEYS[6], ttl) " +
+            "else " +
+            "  redis.call('ZADD', KEYS[7], 0, ARGV[6]) " +
+            "  redis.call('HINCRBY', KEYS[4], 'r' .. ARGV[5], 1) " +
+            "  redis.call('PEXPIRE', KEYS[7], ttl) " +
+            "  redis.call('PEXPIRE', KEYS[4], ttl) " +
+            "end " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 点赞数变化 (KEYS: loaded, building, count, hot; ARGV: 评论ID, 增量, hot 分数增量 (回复为空串))
+     */
+    private static final DefaultRedisScript<Long> LIKE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[2]) " +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "local ttl = redis.call('PTTL', KEYS[1]) + " + DATA_GRACE_MILLIS + " " +
+            "redis.call('HINCRBY', KEYS[3], 'l' .. ARGV[1], ARGV[2]) " +
+            "redis.call('PEXPIRE', KEYS[3], ttl) " +
+            "if ARGV[3] ~= '' then " +
+            "  redis.call('ZINCRBY', KEYS[4], ARGV[3], ARGV[1]) " +
+            "  redis.call('PEXPIRE', KEYS[4], ttl) " +
+            "end " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 重建完成: 期间没有被修补作废时才写入 loaded 标记 (KEYS: building, loaded; ARGV: 令牌, TTL)
+     */
+    private static final DefaultRedisScript<Long> COMMIT_BUILD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end " +
+            "redis.call('SET', KEYS[2], '1', 'PX', ARGV[2]) " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return 1",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ProjectCommentMapper commentMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 评论结构的有效期 (毫秒)
+    @Value("${sparkhub.cache.comment.time-to-live:1800000}")
+    private long timeToLive;
+
+    /**
+     * 缓存中一条评论的内容 (计数单独存放, 以便原地修改)
+     */
+    private record Node(Long id, String content, LocalDateTime createTime,
+                        Long userId, String username, String avatar, Long parentId) {
+    }
+
+    /**
+     * 一页顶级评论
+     * @param hot    true = 按点赞数倒序, false = 按时间倒序
+     * @param cursor 上一页最后一条 (null 表示第一页)
+     * @param limit  最多返回的数量
+     * @return 评论列表; 缓存不可用时返回 null (由调用方查询数据库)
+     */
+    public List<CommentDetailDTO> findTopLevel(Long projectId, boolean hot, Cursor cursor, int limit) {
+        if (hot) {
+            String max = cursor == null ? "+inf" : "(" + hotScore(cursor.asLong(), cursor.getId());
+            return read(projectId, READ_HOT_SCRIPT, key(projectId, "hot"), max, String.valueOf(limit));
+        }
+        String max = cursor == null ? "+" : "(" + timeMember(cursor.asTime(), cursor.getId());
+        return read(projectId, READ_LEX_SCRIPT, key(projectId, "time"), max, "-", String.valueOf(limit), "desc");
+    }
+
+    /**
+     * 一页直接回复 (按时间正序)
+     * @return 评论列表; 缓存不可用时返回 null (由调用方查询数据库)
+     */
+    public List<CommentDetailDTO> findReplies(Long projectId, Long parentId, Cursor cursor, int limit) {
+        String min = cursor == null ? "[" + parentId + ":" : "(" + replyMember(parentId, cursor.asTime(), cursor.getId());
+        String max = "(" + parentId + ";"; // ';' 紧跟在 ':' 之后: 只取这个父评论的回复
+        return read(projectId, READ_LEX_SCRIPT, key(projectId, "reply"), min, max, String.valueOf(limit), "asc");
+    }
+
+    /**
+     * 发表评论后加入缓存 (事务提交后)
+     */
+    public void addComment(Long projectId, CommentDetailDTO comment) {
+        afterCommit(projectId, () -> {
+            Node node = new Node(comment.getId(), comment.getContent(), comment.getCreateTime(),
+                    comment.getUserId(), comment.getUsername(), comment.getAvatar(), comment.getParentId());
+            boolean topLevel = comment.getParentId() == null;
+            redisTemplate.execute(ADD_SCRIPT, keys(projectId, "loaded", "building", "node", "count", "time", "hot", "reply"),
+                    String.valueOf(comment.getId()),
+                    objectMapper.writeValueAsString(node),
+                    timeMember(comment.getCreateTime(), comment.getId()),
+                    String.valueOf(hotScore(0, comment.getId())),
+                    topLevel ? "" : String.valueOf(comment.getParentId()),
+                    topLevel ? "" : replyMember(comment.getParentId(), comment.getCreateTime(), comment.getId()));
+        });
+    }
+
+    /**
+     * 点赞数变化后修补缓存 (事务提交后)
+     * @param topLevel 是否为顶级评论 (只有顶级评论参与热度排序)
+     * @param delta    点赞数增量 (+1 / -1)
+     */
+    public void patchLikeCount(Long projectId, Long commentId, boolean topLevel, long delta) {
+        afterCommit(projectId, () -> redisTemplate.execute(LIKE_SCRIPT, keys(projectId, "loaded", "building", "count", "hot"),
+                String.valueOf(commentId),
+                String.valueOf(delta),
+                topLevel ? String.valueOf(delta * HOT_SCALE) : ""));
+    }
+
+    /**
+     * 删除一个项目的评论缓存 (项目删除后, 事务提交后)
+     */
+    public void evict(Long projectId) {
+        afterCommit(projectId, () -> redisTemplate.delete(keys(projectId, "loaded", "building", "node", "count", "time", "hot", "reply")));
+    }
+
+    // --- 内部方法 ---
+
+    /**
+     * 执行读取脚本; 结构未加载时先重建再读一次
+     */
+    @SuppressWarnings("rawtypes")
+    private List<CommentDetailDTO> read(Long projectId, DefaultRedisScript<List> script, String indexKey, String... args) {
+        List<String> scriptKeys = List.of(key(projectId, "loaded"), indexKey, key(projectId, "node"), key(projectId, "count"));
+        try {
+            List result = redisTemplate.execute(script, scriptKeys, (Object[]) args);
+            if (result == null) {
+                if (!build(projectId)) {
+                    return null; // 其他请求正在重建
+                }
+                result = redisTemplate.execute(script, scriptKeys, (Object[]) args);
+                if (result == null) {
+                    return null;
+                }
+            }
+            return toComments(result);
+        } catch (Exception e) {
+            log.warn("读取评论缓存失败 (项目 {}), 查询数据库: {}", projectId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 从数据库加载一个项目的全部评论, 重建缓存结构
+     * @return 结构是否已可读 (同一时间只有一个请求重建, 其他请求直接查询数据库; 其他请求刚完成重建时直接返回 true)
+     */
+    private boolean build(Long projectId) throws Exception {
+        String token = UUID.randomUUID().toString();
+        Long locked = redisTemplate.execute(LOCK_BUILD_SCRIPT, keys(projectId, "loaded", "building"),
+                token, String.valueOf(BUILD_LOCK_MILLIS));
+        if (locked == null || locked == 0) {
+            return false;
+        }
+        if (locked == 2) {
+            return true;
+        }
+
+        // 1. 一次查询全部评论 (只在缓存过期后执行一次)
+        List<CommentDetailDTO> comments = commentMapper.findByProjectId(projectId);
+
+        // 2. 组装结构
+        Map<String, String> nodes = new HashMap<>();
+        Map<String, String> counts = new HashMap<>();
+        List<String> timeMembers = new ArrayList<>();
+        Map<String, Double> hotScores = new HashMap<>();
+        List<String> replyMembers = new ArrayList<>();
+        for (CommentDetailDTO c : comments) {
+            String id = String.valueOf(c.getId());
+            nodes.put(id, objectMapper.writeValueAsString(new Node(c.getId(), c.getContent(), c.getCreateTime(),
+                    c.getUserId(), c.getUsername(), c.getAvatar(), c.getParentId())));
+            counts.put("l" + id, String.valueOf(c.getLikeCount() == null ? 0 : c.getLikeCount()));
+            counts.put("r" + id, String.valueOf(c.getReplyCount() == null ? 0 : c.getReplyCount()));
+            if (c.getParentId() == null) {
+                timeMembers.add(timeMember(c.getCreateTime(), c.getId()));
+                hotScores.put(id, (double) hotScore(c.getLikeCount() == null ? 0 : c.getLikeCount(), c.getId()));
+            } else {
+                replyMembers.add(replyMember(c.getParentId(), c.getCreateTime(), c.getId()));
+            }
+        }
+
+        // 3. 一次往返写入 (先清除上一次的残留)
+        List<String> dataKeys = keys(projectId, "node", "count", "time", "hot", "reply");
+        long dataTtl = timeToLive + DATA_GRACE_MILLIS;
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            conn.del(dataKeys.toArray(new String[0]));
+            if (!nodes.isEmpty()) {
+                conn.hMSet(dataKeys.get(0), nodes);
+                conn.hMSet(dataKeys.get(1), counts);
+            }
+            for (String member : timeMembers) {
+                conn.zAdd(dataKeys.get(2), 0, member);
+            }
+            hotScores.forEach((member, score) -> conn.zAdd(dataKeys.get(3), score, member));
+            for (String member : replyMembers) {
+                conn.zAdd(dataKeys.get(4), 0, member);
+            }
+            for (String dataKey : dataKeys) {
+                conn.pExpire(dataKey, dataTtl);
+            }
+            return null;
+        });
+
+        // 4. 期间没有写操作时才标记为已加载
+        Long committed = redisTemplate.execute(COMMIT_BUILD_SCRIPT, keys(projectId, "building", "loaded"),
+                token, String.valueOf(timeToLive));
+        return Long.valueOf(1).equals(committed);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private List<CommentDetailDTO> toComments(List result) throws Exception {
+        List<CommentDetailDTO> comments = new ArrayList<>(result.size() / 3);
+        for (int i = 0; i + 2 < result.size(); i += 3) {
+            String json = (String) result.get(i);
+            if (json.isEmpty()) {
+                continue;
+            }
+            Node node = objectMapper.readValue(json, Node.class);
+            CommentDetailDTO comment = new CommentDetailDTO();
+            comment.setId(node.id());
+            comment.setContent(node.content());
+            comment.setCreateTime(node.createTime());
+            comment.setUserId(node.userId());
+            comment.setUsername(node.username());
+            comment.setAvatar(node.avatar());
+            comment.setParentId(node.parentId());
+            comment.setLikeCount(Integer.valueOf((String) result.get(i + 1)));
+            comment.setReplyCount(Integer.valueOf((String) result.get(i + 2)));
+            comments.add(comment);
+        }
+        return comments;
+    }
+
+    private static String key(Long projectId, String part) {
+        return KEY_PREFIX + projectId + ":" + part;
+    }
+
+    private static List<String> keys(Long projectId, String... parts) {
+        List<String> keys = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            keys.add(key(projectId, part));
+        }
+        return keys;
+    }
+
+    private static long hotScore(long likeCount, long commentId) {
+        return likeCount * HOT_SCALE + commentId;
+    }
+
+    private static String timeMember(LocalDateTime createTime, Long commentId) {
+        return String.format("%012d:%019d", epochSecond(createTime), commentId);
+    }
+
+    private static String replyMember(Long parentId, LocalDateTime createTime, Long commentId) {
+        return parentId + ":" + timeMember(createTime, commentId);
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    /**
+     * 事务提交后修补缓存 (失败时删除 loaded 标记和重建锁, 下次读取时重建)
+     */
+    private void afterCommit(Long projectId, CacheUpdate update) {
+        Runnable action = () -> {
+            try {
+                update.apply();
+            } catch (Exception e) {
+                log.warn("修补评论缓存失败 (项目 {}), 下次读取时重建: {}", projectId, e.getMessage());
+                invalidate(projectId);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 作废一个项目的评论结构: 删除 loaded 标记 (下次读取时重建) 和重建锁 (正在进行的重建不会写入 loaded)
+     */
+    private void invalidate(Long projectId) {
+        try {
+            redisTemplate.delete(keys(projectId, "loaded", "building"));
+        } catch (Exception e) {
+            // Redis 不可用: loaded 标记最多在 TTL 后过期
+            log.warn("作废评论缓存失败 (项目 {}): {}", projectId, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface CacheUpdate {
+        void apply() throws Exception;
+    }
+}
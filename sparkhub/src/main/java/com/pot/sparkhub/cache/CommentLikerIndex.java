@@ -0,0 +1,213 @@
+package com.pot.sparkhub.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.pot.sparkhub.entity.ProjectCommentLike;
+import com.pot.sparkhub.mapper.CommentLikeMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 评论点赞用户的本地索引: 每条评论一个压缩位图 ({@link LikerBitmap}), 用于判断 "用户点赞了本页的哪些评论"
+ *
+ * 1. 未命中的评论一次 IN 查询加载 (按 comment_id, 与查看者无关, 所有用户共用)
+ * 2. 点赞写回数据库后, 先修补本节点的位图, 再通过 Redis 频道 {@link #CHANGE_CHANNEL} 通知其他节点修补
+ *    (消息带本节点标识, 收到自己发出的消息时忽略)
+ * 3. 加载期间有过修补时, 本次加载结果不放入缓存 (可能早于修补), 下次重新加载
+ * 4. 按内存估算值限制总容量 (修补在 compute 中进行, 位图增长后重新计算权重),
+ *    并在首次加载后定期过期重建 (修补不延长过期时间; 兜底: 丢失修补消息的节点)
+ */
+@Component
+public class CommentLikerIndex implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentLikerIndex.class);
+
+    // 集群内广播点赞变化的频道
+    public static final String CHANGE_CHANNEL = "sparkhub:comment:liker";
+    private static final String SEPARATOR = "|";
+
+    // 本节点标识, 用于忽略自己发出的消息
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    private CommentLikeMapper likeMapper;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 本地位图的总容量 (字节, 估算值)
+    @Value("${sparkhub.cache.comment-liker.maximum-weight:67108864}")
+    private long maximumWeight;
+
+    // 位图的最长保留时间 (毫秒)
+    @Value("${sparkhub.cache.comment-liker.expire-after-write:600000}")
+    private long expireAfterWrite;
+
+    private Cache<Long, LikerBitmap> bitmaps;
+
+    // 修补计数: 加载前后不一致说明加载期间有修补
+    private final AtomicLong changeVersion = new AtomicLong();
+
+    /**
+     * 一条评论的点赞变化 (广播消息)
+     */
+    private record LikeChange(Long commentId, List<Long> liked, List<Long> unliked) {
+    }
+
+    @PostConstruct
+    public void init() {
+        bitmaps = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((Long commentId, LikerBitmap bitmap) -> bitmap.sizeInBytes())
+                .expireAfter(new Expiry<Long, LikerBitmap>() {
+                    @Override
+                    public long expireAfterCreate(Long commentId, LikerBitmap bitmap, long currentTime) {
+                        return Duration.ofMillis(expireAfterWrite).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long commentId, LikerBitmap bitmap, long currentTime, long currentDuration) {
+                        return currentDuration; // 修补不延长过期时间
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long commentId, LikerBitmap bitmap, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANGE_CHANNEL));
+    }
+
+    /**
+     * 用户点赞了其中的哪些评论 (只反映已写回数据库的点赞)
+     */
+    public Set<Long> likedBy(Long userId, List<Long> commentIds) {
+        Set<Long> liked = new HashSet<>();
+        if (commentIds.isEmpty()) {
+            return liked;
+        }
+
+        // 1. 先查本地位图, 收集未命中的评论
+        Map<Long, LikerBitmap> present = bitmaps.getAllPresent(commentIds);
+        List<Long> missing = new ArrayList<>();
+        for (Long commentId : commentIds) {
+            if (!present.containsKey(commentId)) {
+                missing.add(commentId);
+            }
+        }
+
+        // 2. 一次查询加载所有未命中的评论
+        Map<Long, LikerBitmap> loaded = missing.isEmpty() ? Map.of() : load(missing);
+
+        for (Long commentId : commentIds) {
+            LikerBitmap bitmap = present.getOrDefault(commentId, loaded.get(commentId));
+            if (bitmap != null && bitmap.contains(userId)) {
+                liked.add(commentId);
+            }
+        }
+        return liked;
+    }
+
+    /**
+     * 修补本节点并广播一条评论的点赞变化 (点赞写回数据库的事务提交后)
+     */
+    public void publishChange(Long commentId, List<Long> liked, List<Long> unliked) {
+        LikeChange change = new LikeChange(commentId, liked, unliked);
+        Runnable broadcast = () -> {
+            apply(change);
+            try {
+                redisTemplate.convertAndSend(CHANGE_CHANNEL, nodeId + SEPARATOR + objectMapper.writeValueAsString(change));
+            } catch (Exception e) {
+                // 广播失败时其他节点的位图在过期后重建
+                log.warn("点赞变化广播失败: {}", e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    broadcast.run();
+                }
+            });
+        } else {
+            broadcast.run();
+        }
+    }
+
+    /**
+     * 收到其他节点的广播: 修补本节点的位图 (自己发出的消息已在本地修补过)
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.indexOf(SEPARATOR);
+        if (sep < 0 || nodeId.equals(body.substring(0, sep))) {
+            return; // 格式错误, 或者是自己发出的消息
+        }
+        try {
+            apply(objectMapper.readValue(body.substring(sep + 1), LikeChange.class));
+        } catch (Exception e) {
+            log.warn("解析点赞变化消息失败: {}", e.getMessage());
+        }
+    }
+
+    // --- 内部方法 ---
+
+    private Map<Long, LikerBitmap> load(List<Long> commentIds) {
+        long version = changeVersion.get();
+
+        Map<Long, LikerBitmap> loaded = new HashMap<>();
+        for (Long commentId : commentIds) {
+            loaded.put(commentId, new LikerBitmap()); // 没有点赞的评论也缓存 (空位图)
+        }
+        for (ProjectCommentLike like : likeMapper.findByCommentIds(commentIds)) {
+            loaded.get(like.getCommentId()).add(like.getUserId());
+        }
+
+        if (changeVersion.get() == version) {
+            bitmaps.putAll(loaded);
+        }
+        return loaded;
+    }
+
+    private void apply(LikeChange change) {
+        changeVersion.incrementAndGet();
+        // 本节点没有缓存时不加载, 下次使用时从数据库加载; 在 compute 中修补, 缓存按修补后的大小重新计算权重
+        bitmaps.asMap().computeIfPresent(change.commentId(), (commentId, bitmap) -> {
+            change.liked().forEach(bitmap::add);
+            change.unliked().forEach(bitmap::remove);
+            return bitmap;
+        });
+    }
+}
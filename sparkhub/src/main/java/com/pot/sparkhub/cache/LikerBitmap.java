@@ -0,0 +1,135 @@
+package com.pot.sparkhub.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 用户ID 的压缩位图 (Roaring 结构)
+ *
+ * 按 ID 的高位分桶, 每个桶保存低 16 位:
+ *   - 不超过 4096 个时用有序 char 数组 (每个 ID 2 字节)
+ *   - 超过后转为 65536 位的位图 (固定 8KB)
+ * 成员判断是一次哈希查找 + 二分查找 (或一次位运算); 可原地增删 (线程安全)
+ */
+final class LikerBitmap {
+
+    // 数组桶的最大容量 (4096 * 2 字节 = 位图桶的 8KB)
+    private static final int ARRAY_MAX = 4096;
+
+    private final Map<Long, Container> containers = new HashMap<>();
+
+    synchronized boolean contains(long value) {
+        Container container = containers.get(value >>> 16);
+        return container != null && container.contains((char) value);
+    }
+
+    synchronized void add(long value) {
+        containers.computeIfAbsent(value >>> 16, high -> new Container()).add((char) value);
+    }
+
+    synchronized void remove(long value) {
+        Container container = containers.get(value >>> 16);
+        if (container != null && container.remove((char) value) && container.cardinality == 0) {
+            containers.remove(value >>> 16);
+        }
+    }
+
+    /**
+     * 估算占用的内存 (字节), 用于本地缓存的容量控制
+     */
+    synchronized int sizeInBytes() {
+        int size = 64;
+        for (Container container : containers.values()) {
+            size += 48 + (container.bits != null ? container.bits.length * 8 : container.array.length * 2);
+        }
+        return size;
+    }
+
+    /**
+     * 一个桶: 有序数组 或 位图
+     */
+    private static final class Container {
+
+        private char[] array = new char[4];
+        private long[] bits;
+        private int cardinality;
+
+        boolean contains(char low) {
+            if (bits != null) {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(array, 0, cardinality, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] = before | (1L << low);
+                if (before == bits[low >>> 6]) {
+                    return false;
+                }
+                cardinality++;
+                return true;
+            }
+            int index = Arrays.binarySearch(array, 0, cardinality, low);
+            if (index >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                return add(low);
+            }
+            index = -index - 1;
+            if (cardinality == array.length) {
+                array = Arrays.copyOf(array, Math.min(ARRAY_MAX, Math.max(4, array.length * 2)));
+            }
+            System.arraycopy(array, index, array, index + 1, cardinality - index);
+            array[index] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] = before & ~(1L << low);
+                if (before == bits[low >>> 6]) {
+                    return false;
+                }
+                if (--cardinality <= ARRAY_MAX) {
+                    toArray();
+                }
+                return true;
+            }
+            int index = Arrays.binarySearch(array, 0, cardinality, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(array, index + 1, array, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        private void toBitmap() {
+            bits = new long[1024];
+            for (int i = 0; i < cardinality; i++) {
+                bits[array[i] >>> 6] |= 1L << array[i];
+            }
+            array = null;
+        }
+
+        private void toArray() {
+            array = new char[cardinality];
+            int n = 0;
+            for (int word = 0; word < bits.length; word++) {
+                long w = bits[word];
+                while (w != 0) {
+                    array[n++] = (char) ((word << 6) + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            bits = null;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.pot.sparkhub.cache;
+
+import com.github.pagehelper.PageInfo;
+import com.pot.sparkhub.common.CursorPage;
+import com.pot.sparkhub.common.ProjectSort;
+import com.pot.sparkhub.dto.ProjectSummaryDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 项目列表缓存 ("projectList") 的分代管理
+ *
+ * 1. 每个缓存 key 都带有所属范围 (全部分类 / 某个分类) 当前的 "代" (generation): {范围}.g{代}:{原 key}
+ *    项目审核/修改后只需把相关范围的代号 +1, 旧代的条目自然不再被访问, 由 TTL 回收,
+ *    不再需要 allEntries 清空 (Redis 上的 SCAN + 批量删除) 和随之而来的集中回源;
+ *    某个分类的项目变化时, 其他分类的列表缓存不受影响。
+ * 2. 支付成功后不修改缓存的列表, 而是把项目的最新金额写入 Redis (每个项目一个 key, 只增不减的原子更新);
+ *    读取列表时一次 MGET 取出本页项目的最新金额, 叠加到列表的副本上 (缓存中的对象是共享的, 从不修改)。
+ *    按金额/完成度排序的列表不叠加: 叠加后会与自身的排序和游标不一致, 这两种列表在 TTL 内展示快照。
+ */
+@Component
+public class ProjectListCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectListCache.class);
+
+    public static final String CACHE_NAME = "projectList";
+
+    // 各范围的当前代号 (Hash: 范围 -> 代号)
+    private static final String GENERATION_KEY = "sparkhub:cache:projectList:generation";
+    // 项目的最新金额: sparkhub:cache:projectList:amount:{projectId} (有效期与列表缓存一致)
+    private static final String AMOUNT_KEY_PREFIX = "sparkhub:cache:projectList:amount:";
+    // 范围: 不按分类筛选的列表
+    private static final String SCOPE_ALL = "all";
+
+    /**
+     * 只增不减地更新项目金额 (并发支付的提交顺序可能颠倒, 只接受更大的值)
+     * 金额只会因支付而增加; 写入时 (重新) 设置有效期, 保证早于这次支付写入的列表条目过期之前, 金额一直可见
+     */
+    private static final DefaultRedisScript<Long> MAX_AMOUNT_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[1]) " +
+            "if current and tonumber(current) >= tonumber(ARGV[1]) then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+            "return 1",
+            Long.class);
+
+    // 本地代号的刷新间隔 (其他节点的代号变更最多延迟这么久可见)
+    private static final long GENERATION_REFRESH_MILLIS = 1000;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // 与 projectList 缓存的 TTL 一致
+    @Value("${sparkhub.cache.project-list.time-to-live:300000}")
+    private long timeToLive;
+
+    // 本地的代号快照 (范围 -> 代号)
+    private volatile Map<String, Long> generations = Collections.emptyMap();
+    private volatile long lastRefreshTime = 0;
+
+    /**
+     * 读取列表缓存, 未命中时执行 loader 并写入缓存
+     * @param categoryId 列表筛选的分类 (null 表示全部分类)
+     * @param sort       列表的排序方式 (决定是否叠加最新金额)
+     * @param key        不带代号的缓存 key (e.g., "public:newest:1:10")
+     * @param loader     查询数据库的逻辑
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Long categoryId, ProjectSort sort, String key, Supplier<T> loader) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        String scope = scopeOf(categoryId);
+        String cacheKey = scope + ".g" + currentGeneration(scope) + ":" + key;
+
+        // 1. 命中直接使用, 未命中时回源并写入
+        T value;
+        Cache.ValueWrapper wrapper = cache.get(cacheKey);
+        if (wrapper != null) {
+            value = (T) wrapper.get();
+        } else {
+            value = loader.get();
+            cache.put(cacheKey, value);
+        }
+
+        // 2. 叠加支付后的最新金额 (返回副本)
+        if (sort == ProjectSort.MOST_FUNDED || sort == ProjectSort.PERCENT_FUNDED) {
+            return value;
+        }
+        return withLatestAmounts(value);
+    }
+
+    /**
+     * 使某个分类的项目列表缓存失效: 该分类和 "全部分类" 两个范围的代号 +1
+     * 在事务中调用时, 推迟到事务提交后执行, 避免并发读把旧数据写进新一代
+     * @param categoryIds 发生变化的项目所属的分类 (修改分类时传入新旧两个分类)
+     */
+    public void invalidate(Long... categoryIds) {
+        runAfterCommit(() -> {
+            try {
+                redisTemplate.opsForHash().increment(GENERATION_KEY, SCOPE_ALL, 1);
+                for (Long categoryId : categoryIds) {
+                    if (categoryId != null) {
+                        redisTemplate.opsForHash().increment(GENERATION_KEY, scopeOf(categoryId), 1);
+                    }
+                }
+                lastRefreshTime = 0; // 本节点立即读取新代号
+            } catch (Exception e) {
+                log.warn("项目列表缓存代号更新失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 支付成功后, 记录项目的最新金额 (事务提交后执行), 列表缓存本身不变
+     * @param projectId     项目ID
+     * @param currentAmount 支付后的项目金额
+     */
+    public void patchCurrentAmount(Long projectId, BigDecimal currentAmount) {
+        runAfterCommit(() -> {
+            try {
+                redisTemplate.execute(MAX_AMOUNT_SCRIPT, List.of(amountKey(projectId)),
+                        currentAmount.toPlainString(), String.valueOf(timeToLive));
+            } catch (Exception e) {
+                log.warn("项目最新金额写入失败 (项目ID: {}): {}", projectId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 把最新金额叠加到列表上: 有更新的项目时复制列表和这些项目的摘要, 不修改缓存中的对象
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T withLatestAmounts(T value) {
+        List<ProjectSummaryDTO> rows = rowsOf(value);
+        if (rows.isEmpty()) {
+            return value;
+        }
+
+        // 1. 一次 MGET 取出本页项目的最新金额
+        List<String> amounts;
+        try {
+            amounts = redisTemplate.opsForValue().multiGet(
+                    rows.stream().map(summary -> amountKey(summary.getId())).toList());
+        } catch (Exception e) {
+            log.warn("项目最新金额读取失败, 返回缓存的列表: {}", e.getMessage());
+            return value;
+        }
+        if (amounts == null) {
+            return value;
+        }
+
+        // 2. 只复制金额有变化的项目
+        List<ProjectSummaryDTO> patched = new ArrayList<>(rows.size());
+        boolean changed = false;
+        for (int i = 0; i < rows.size(); i++) {
+            ProjectSummaryDTO summary = rows.get(i);
+            String amount = amounts.get(i);
+            if (amount != null && (summary.getCurrentAmount() == null
+                    || summary.getCurrentAmount().compareTo(new BigDecimal(amount)) < 0)) {
+                summary = withAmount(summary, new BigDecimal(amount));
+                changed = true;
+            }
+            patched.add(summary);
+        }
+        if (!changed) {
+            return value;
+        }
+
+        // 3. 复制分页容器 (分页信息和游标不变)
+        if (value instanceof PageInfo<?> page) {
+            PageInfo<ProjectSummaryDTO> copy = new PageInfo<>();
+            BeanUtils.copyProperties(page, copy);
+            copy.setList(patched);
+            return (T) copy;
+        }
+        CursorPage<ProjectSummaryDTO> copy = new CursorPage<>();
+        BeanUtils.copyProperties(value, copy);
+        copy.setList(patched);
+        return (T) copy;
+    }
+
+    private static ProjectSummaryDTO withAmount(ProjectSummaryDTO summary, BigDecimal currentAmount) {
+        ProjectSummaryDTO copy = new ProjectSummaryDTO();
+        BeanUtils.copyProperties(summary, copy);
+        copy.setCurrentAmount(currentAmount);
+        if (copy.getGoalAmount() != null && copy.getGoalAmount().signum() > 0) {
+            copy.setFundedRatio(currentAmount.divide(copy.getGoalAmount(), 4, RoundingMode.HALF_UP));
+        }
+        return copy;
+    }
+
+    /**
+     * 范围的当前代号 (本地快照, 每秒最多从 Redis 刷新一次)
+     */
+    private long currentGeneration(String scope) {
+        long now = System.currentTimeMillis();
+        if (now - lastRefreshTime > GENERATION_REFRESH_MILLIS) {
+            try {
+                Map<String, Long> snapshot = new HashMap<>();
+                redisTemplate.<String, String>opsForHash().entries(GENERATION_KEY)
+                        .forEach((field, value) -> snapshot.put(field, Long.parseLong(value)));
+                generations = snapshot;
+            } catch (Exception e) {
+                log.warn("项目列表缓存代号读取失败, 沿用本地代号: {}", e.getMessage());
+            }
+            lastRefreshTime = now;
+        }
+        return generations.getOrDefault(scope, 0L);
+    }
+
+    private static String scopeOf(Long categoryId) {
+        return categoryId == null ? SCOPE_ALL : "c" + categoryId;
+    }
+
+    private static String amountKey(Long projectId) {
+        return AMOUNT_KEY_PREFIX + projectId;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ProjectSummaryDTO> rowsOf(Object value) {
+        if (value instanceof PageInfo<?> page) {
+            return (List<ProjectSummaryDTO>) page.getList();
+        }
+        if (value instanceof CursorPage<?> page) {
+            return (List<ProjectSummaryDTO>) page.getList();
+        }
+        return Collections.emptyList();
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.pot.sparkhub.cache;
+
+import com.pot.sparkhub.entity.Role;
+import com.pot.sparkhub.mapper.UserMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 角色名 -> 角色ID (role 表只有几行且几乎不变, 启动时整体加载)
+ * 查不到时重新加载一次 (新增的角色), 仍然查不到说明角色不存在
+ */
+@Component
+public class RoleIdCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleIdCache.class);
+
+    @Autowired
+    private UserMapper userMapper;
+
+    private volatile Map<String, Long> roleIds = Map.of();
+
+    /**
+     * 启动完成后加载 (数据库不可用时在第一次使用时加载)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.warn("加载角色表失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 根据角色名 (e.g., "ROLE_USER") 查找角色ID
+     * @return 角色不存在时返回 null
+     */
+    public Long getRoleId(String name) {
+        Long roleId = roleIds.get(name);
+        if (roleId == null) {
+            reload();
+            roleId = roleIds.get(name);
+        }
+        return roleId;
+    }
+
+    private void reload() {
+        roleIds = userMapper.findAllRoles().stream()
+                .collect(Collectors.toUnmodifiableMap(Role::getName, Role::getId));
+    }
+}
@@ -0,0 +1,156 @@
+package com.pot.sparkhub.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 二级缓存
+ * L1: 进程内 Caffeine (有界 + TTL), L2: Redis (RedisCache)
+ * 读: L1 -> L2 -> 方法体; 写/删: 同时作用于两级, 并通过 Redis pub/sub 通知其他节点清除 L1
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Cache remote;
+    private final TwoLevelCacheManager manager;
+
+    // L2 命中统计 (L1 的统计由 Caffeine 自带)
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder remoteMisses = new LongAdder();
+
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<String, Object> local,
+                         Cache remote,
+                         TwoLevelCacheManager manager) {
+        super(true); // 与 RedisCache 保持一致, 允许缓存 null
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.manager = manager;
+    }
+
+    /**
+     * L1 的 key 统一转为字符串 (与 Redis key 的生成方式一致, 避免 Long 1 与 "1" 不相等)
+     */
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this.local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = localKey(key);
+
+        // 1. 先查 L1
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            return value;
+        }
+
+        // 2. 再查 L2, 命中后回填 L1
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper == null) {
+            remoteMisses.increment();
+            return null;
+        }
+        remoteHits.increment();
+        Object storeValue = toStoreValue(wrapper.get());
+        local.put(localKey, storeValue);
+        return storeValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Throwable ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        local.put(localKey(key), toStoreValue(value));
+        // 其他节点的 L1 可能持有旧值
+        manager.publishEvict(name, localKey(key));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        local.invalidate(localKey(key));
+        if (existing == null) {
+            // 写入了新值: 与 put 相同, 其他节点的 L1 可能持有旧值 (L2 中已过期或被清除的条目)
+            manager.publishEvict(name, localKey(key));
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        local.invalidate(localKey(key));
+        manager.publishEvict(name, localKey(key));
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        manager.publishEvict(name, null);
+    }
+
+    // --- 由 pub/sub 消息触发, 只清除本节点的 L1 ---
+
+    void evictLocal(String localKey) {
+        local.invalidate(localKey);
+    }
+
+    void clearLocal() {
+        local.invalidateAll();
+    }
+
+    /**
+     * 两级缓存的命中/未命中统计
+     */
+    Map<String, Object> stats() {
+        com.github.benmanes.caffeine.cache.stats.CacheStats localStats = local.stats();
+        long l2Hits = remoteHits.sum();
+        long l2Misses = remoteMisses.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("l1Size", local.estimatedSize());
+        stats.put("l1Hits", localStats.hitCount());
+        stats.put("l1Misses", localStats.missCount());
+        stats.put("l1HitRatio", localStats.hitRate());
+        stats.put("l1Evictions", localStats.evictionCount());
+        stats.put("l2Hits", l2Hits);
+        stats.put("l2Misses", l2Misses);
+        stats.put("l2HitRatio", l2Hits + l2Misses == 0 ? 1.0 : (double) l2Hits / (l2Hits + l2Misses));
+        return stats;
+    }
+}
@@ -0,0 +1,118 @@
+package com.pot.sparkhub.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 二级缓存管理器 (Caffeine L1 + Redis L2)
+ * 同时作为 Redis 频道 {@link #EVICT_CHANNEL} 的监听者: 收到其他节点的清除消息时, 只清除本节点的 L1
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+
+    // 集群内广播缓存清除的频道
+    public static final String EVICT_CHANNEL = "sparkhub:cache:evict";
+
+    // 消息格式: nodeId|cacheName|key (key 为空表示清空整个缓存)
+    private static final String SEPARATOR = "|";
+
+    // 本节点标识, 用于忽略自己发出的消息
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final RedisCacheManager redisCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final long localMaximumSize;
+    private final Duration localExpireAfterWrite;
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager,
+                                StringRedisTemplate redisTemplate,
+                                long localMaximumSize,
+                                Duration localExpireAfterWrite) {
+        this.redisCacheManager = redisCacheManager;
+        this.redisTemplate = redisTemplate;
+        this.localMaximumSize = localMaximumSize;
+        this.localExpireAfterWrite = localExpireAfterWrite;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, n -> new TwoLevelCache(
+                n,
+                Caffeine.newBuilder()
+                        .maximumSize(localMaximumSize)           // 基于 W-TinyLFU 的容量淘汰
+                        .expireAfterWrite(localExpireAfterWrite) // 兜底: 即使丢失清除消息, L1 也只会短暂过期
+                        .recordStats()
+                        .build(),
+                redisCacheManager.getCache(n),
+                this
+        ));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * 通知其他节点清除 L1
+     * @param cacheName 缓存名
+     * @param localKey  缓存 key (null 表示清空整个缓存)
+     */
+    void publishEvict(String cacheName, String localKey) {
+        String message = nodeId + SEPARATOR + cacheName + SEPARATOR + (localKey == null ? "" : localKey);
+        try {
+            redisTemplate.convertAndSend(EVICT_CHANNEL, message);
+        } catch (Exception e) {
+            // 广播失败不影响本节点 (其他节点的 L1 会在 TTL 后过期)
+            log.warn("缓存清除消息广播失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return; // 格式错误, 或者是自己发出的消息
+        }
+
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return; // 本节点还没有用到这个缓存
+        }
+        if (parts[2].isEmpty()) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(parts[2]);
+        }
+    }
+
+    /**
+     * 所有缓存的两级命中率统计
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        caches.forEach((name, cache) -> stats.put(name, cache.stats()));
+        return stats;
+    }
+}
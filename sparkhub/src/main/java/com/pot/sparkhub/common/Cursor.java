@@ -0,0 +1,62 @@
+package com.pot.sparkhub.common;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 游标分页的 "不透明" 游标 (seek 分页)
+ * 编码内容为 "排序字段值|id", 对前端而言只是一个字符串, 原样回传即可。
+ */
+@Getter
+public class Cursor {
+
+    private final String value; // 排序字段的值 (e.g., create_time)
+    private final Long id;      // 排序字段相同时, 用主键打破平局
+
+    private Cursor(String value, Long id) {
+        this.value = value;
+        this.id = id;
+    }
+
+    /**
+     * 编码游标
+     */
+    public static String encode(Object value, Long id) {
+        String raw = value + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标
+     * @param token 前端回传的游标 (null 或空串表示第一页)
+     * @return 游标对象, 第一页返回 null
+     */
+    public static Cursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new Cursor(raw.substring(0, sep), Long.valueOf(raw.substring(sep + 1)));
+        } catch (Exception e) {
+            throw new RuntimeException("无效的分页游标");
+        }
+    }
+
+    public LocalDateTime asTime() {
+        return LocalDateTime.parse(value);
+    }
+
+    public BigDecimal asDecimal() {
+        return new BigDecimal(value);
+    }
+
+    public Long asLong() {
+        return Long.valueOf(value);
+    }
+}
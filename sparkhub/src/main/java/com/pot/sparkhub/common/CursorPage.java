@@ -0,0 +1,49 @@
+package com.pot.sparkhub.common;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果 (替代 PageInfo, 不做 COUNT(*) 查询)
+ */
+@Data
+public class CursorPage<T> implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    // 每页数量的上限 (游标分页依赖 LIMIT 限制每次扫描的行数)
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private List<T> list;
+    // 下一页游标 (没有更多数据时为 null)
+    private String nextCursor;
+    private boolean hasMore;
+
+    /**
+     * 把前端传入的每页数量限制在 1 ~ {@link #MAX_PAGE_SIZE} (所有游标分页接口在查询前调用)
+     */
+    public static int clampPageSize(int pageSize) {
+        return Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * 根据 "多查一条" 的结果构建分页
+     * @param rows     Mapper 按 LIMIT pageSize + 1 查出的数据
+     * @param pageSize 每页数量
+     * @param cursorOf 由一行数据生成游标
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int pageSize, Function<T, String> cursorOf) {
+        CursorPage<T> page = new CursorPage<>();
+        page.setHasMore(rows.size() > pageSize);
+        page.setList(new ArrayList<>(page.isHasMore() ? rows.subList(0, pageSize) : rows));
+        if (page.isHasMore()) {
+            page.setNextCursor(cursorOf.apply(page.getList().get(pageSize - 1)));
+        }
+        return page;
+    }
+}
@@ -0,0 +1,51 @@
+package com.pot.sparkhub.common;
+
+import com.pot.sparkhub.dto.ProjectSummaryDTO;
+
+import java.util.function.Function;
+
+/**
+ * 公开项目列表的排序方式 (对应 GET /api/projects?sort=...)
+ * 每种排序都以 id 打破平局, 保证游标分页的顺序稳定
+ */
+public enum ProjectSort {
+
+    NEWEST("newest", p -> Cursor.encode(p.getCreateTime(), p.getId())),            // 最新发布 (create_time DESC)
+    ENDING_SOON("endingSoon", p -> Cursor.encode(p.getEndTime(), p.getId())),      // 即将结束 (end_time ASC)
+    MOST_FUNDED("mostFunded", p -> Cursor.encode(p.getCurrentAmount(), p.getId())), // 筹款最多 (current_amount DESC)
+    PERCENT_FUNDED("percentFunded", p -> Cursor.encode(p.getFundedRatio(), p.getId())); // 完成度最高 (funded_ratio DESC)
+
+    private final String param;
+    private final Function<ProjectSummaryDTO, String> cursorOf;
+
+    ProjectSort(String param, Function<ProjectSummaryDTO, String> cursorOf) {
+        this.param = param;
+        this.cursorOf = cursorOf;
+    }
+
+    /**
+     * 解析请求参数 (null 或空串为默认的 "newest")
+     */
+    public static ProjectSort from(String param) {
+        if (param == null || param.isBlank()) {
+            return NEWEST;
+        }
+        for (ProjectSort sort : values()) {
+            if (sort.param.equals(param)) {
+                return sort;
+            }
+        }
+        throw new RuntimeException("无效的排序方式: " + param);
+    }
+
+    public String getParam() {
+        return param;
+    }
+
+    /**
+     * 用一行数据生成下一页的游标 (游标中的值即排序字段的值)
+     */
+    public String cursorOf(ProjectSummaryDTO summary) {
+        return cursorOf.apply(summary);
+    }
+}
@@ -0,0 +1,19 @@
+package com.pot.sparkhub.common;
+
+/**
+ * 请求过多 (限流或排队已满), 对应 HTTP 429
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    // 建议客户端等待的秒数 (Retry-After)
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
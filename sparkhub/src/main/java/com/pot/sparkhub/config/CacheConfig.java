@@ -1,11 +1,120 @@
 package com.pot.sparkhub.config;
 
+import com.pot.sparkhub.cache.ProjectListCache;
+import com.pot.sparkhub.cache.TwoLevelCacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
 
 @Configuration
 @EnableCaching // 开启 Spring 的注解缓存功能
+@EnableConfigurationProperties(CacheProperties.class)
 public class CacheConfig {
-    // 这里可以保留为空, @EnableCaching 是最重要的。
-    // 未来可以在这里配置更复杂的 CacheManager, 但现在保持简单即可。
-}
\ No newline at end of file
+
+    private static final Logger log = LoggerFactory.getLogger(CacheConfig.class);
+
+    @Lazy // 容器由本类定义, 延迟注入避免循环引用
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    // 本地一级缓存的容量上限 (每个缓存名)
+    @Value("${sparkhub.cache.local.maximum-size:10000}")
+    private long localMaximumSize;
+
+    // 本地一级缓存的过期时间 (毫秒)
+    @Value("${sparkhub.cache.local.expire-after-write:60000}")
+    private long localExpireAfterWrite;
+
+    // 项目列表缓存的过期时间 (毫秒), 分代后旧代条目依靠它回收
+    @Value("${sparkhub.cache.project-list.time-to-live:300000}")
+    private long projectListTimeToLive;
+
+    /**
+     * Redis 消息监听容器 (用于集群内的 pub/sub 广播)
+     * 不随上下文自动启动: Redis 不可用时不应导致应用启动失败, 由 ensureListenerContainerRunning 负责启动和重连
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public boolean isAutoStartup() {
+                return false;
+            }
+        };
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    /**
+     * 定时检查监听容器是否在运行 (启动后立即执行一次)
+     * pub/sub 只是尽力而为: 未连接期间, 其他节点的 L1 依靠 TTL 过期
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void ensureListenerContainerRunning() {
+        if (redisMessageListenerContainer.isRunning()) {
+            return;
+        }
+        try {
+            redisMessageListenerContainer.start();
+        } catch (Exception e) {
+            redisMessageListenerContainer.stop();
+            log.warn("Redis 消息监听容器启动失败, 30 秒后重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 二级缓存: Caffeine (L1) + Redis (L2)
+     * L2 沿用 application.properties 中的 spring.cache.redis.* 配置
+     */
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                             CacheProperties cacheProperties,
+                                             StringRedisTemplate redisTemplate,
+                                             RedisMessageListenerContainer listenerContainer) {
+        // 1. 构建 L2 (RedisCacheManager)
+        CacheProperties.Redis redisProperties = cacheProperties.getRedis();
+        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig(getClass().getClassLoader());
+        if (redisProperties.getTimeToLive() != null) {
+            config = config.entryTtl(redisProperties.getTimeToLive());
+        }
+        if (redisProperties.getKeyPrefix() != null) {
+            config = config.prefixCacheNameWith(redisProperties.getKeyPrefix());
+        }
+        if (!redisProperties.isCacheNullValues()) {
+            config = config.disableCachingNullValues();
+        }
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(config)
+                .withCacheConfiguration(ProjectListCache.CACHE_NAME, config.entryTtl(Duration.ofMillis(projectListTimeToLive)))
+                .build();
+        redisCacheManager.afterPropertiesSet();
+
+        // 2. 包装为二级缓存
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(
+                redisCacheManager,
+                redisTemplate,
+                localMaximumSize,
+                Duration.ofMillis(localExpireAfterWrite)
+        );
+
+        // 3. 订阅缓存清除频道
+        listenerContainer.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.EVICT_CHANNEL));
+        return cacheManager;
+    }
+}
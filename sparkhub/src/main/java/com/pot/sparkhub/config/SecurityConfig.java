@@ -1,6 +1,7 @@
 package com.pot.sparkhub.config;
 
 import com.pot.sparkhub.security.JwtFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,7 +13,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -35,17 +35,15 @@ public class SecurityConfig {
     @Autowired
     private JwtFilter jwtFilter;
 
-    // 1. 密码编码器 (BCrypt)
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
+    // 1. 密码编码器 (BCrypt, 在有界线程池中执行, 见 BoundedPasswordEncoder)
+    @Autowired
+    private PasswordEncoder passwordEncoder;
 
     // 2. AuthenticationManager (认证管理器)
     @Bean
     public AuthenticationManager authenticationManager(HttpSecurity http) throws Exception {
         AuthenticationManagerBuilder builder = http.getSharedObject(AuthenticationManagerBuilder.class);
-        builder.userDetailsService(userDetailsServiceImpl).passwordEncoder(passwordEncoder());
+        builder.userDetailsService(userDetailsServiceImpl).passwordEncoder(passwordEncoder);
         return builder.build();
     }
 
@@ -64,6 +62,8 @@ public class SecurityConfig {
 
                 // (4) 配置 URL 路由权限
                 .authorizeHttpRequests(authz -> authz
+                        // 异步派发 (SSE 推送) 的原始请求已经通过认证, 不再重复检查
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // 允许 CORS preflight OPTIONS 请求
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() // <-- 关键点 2
                         // 允许公开访问上传的图片 (GET请求)
@@ -1,18 +1,23 @@
 package com.pot.sparkhub.controller;
 
 import com.github.pagehelper.PageInfo;
+import com.pot.sparkhub.cache.TwoLevelCacheManager;
 import com.pot.sparkhub.common.Result;
 import com.pot.sparkhub.dto.ProjectAuditDTO;
 import com.pot.sparkhub.dto.ProjectSummaryDTO;
 import com.pot.sparkhub.dto.RoleUpdateDTO;
 import com.pot.sparkhub.entity.Project;
 import com.pot.sparkhub.entity.User;
+import com.pot.sparkhub.security.BoundedPasswordEncoder;
+import com.pot.sparkhub.security.LoginRateLimiter;
 import com.pot.sparkhub.service.ProjectService;
 import com.pot.sparkhub.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/admin")
 @PreAuthorize("hasRole('ROLE_ADMIN')") // <-- 关键: 整个控制器都需要 ADMIN 权限
@@ -24,16 +29,33 @@ public class AdminController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
     /**
      * GET /api/admin/projects
      * 查看所有项目 (用于审核)
      */
     @GetMapping("/projects")
-    public Result<PageInfo<ProjectSummaryDTO>> getProjectsForAdmin(
+    public Result<?> getProjectsForAdmin(
             @RequestParam(defaultValue = "1") int pageNum,
             @RequestParam(defaultValue = "10") int pageSize,
-            @RequestParam(required = false) Integer status
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String after // 传入时使用游标分页
     ) {
+        if (after != null) {
+            try {
+                return Result.success(projectService.getProjectsForAdminAfter(after, pageSize, status));
+            } catch (RuntimeException e) {
+                return Result.error(400, e.getMessage());
+            }
+        }
         PageInfo<ProjectSummaryDTO> page = projectService.getProjectsForAdmin(pageNum, pageSize, status);
         return Result.success(page);
     }
@@ -58,12 +80,23 @@ public class AdminController {
     /**
      * GET /api/admin/users
      * 查看所有用户列表
+     * 搜索模式: /api/admin/users?q=&role=&after= (用户名/邮箱前缀 + 角色过滤, 游标分页; 第一页 after 为空)
      */
     @GetMapping("/users")
-    public Result<PageInfo<User>> getAllUsers(
+    public Result<?> getAllUsers(
             @RequestParam(defaultValue = "1") int pageNum,
-            @RequestParam(defaultValue = "10") int pageSize
+            @RequestParam(defaultValue = "10") int pageSize,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String role,
+            @RequestParam(required = false) String after // 传入任一搜索参数时使用游标分页
     ) {
+        if (q != null || role != null || after != null) {
+            try {
+                return Result.success(userService.searchUsers(q, role, after, pageSize));
+            } catch (RuntimeException e) {
+                return Result.error(400, e.getMessage());
+            }
+        }
         // (警告: User 实体包含密码, 生产环境应返回 UserDTO)
         PageInfo<User> page = userService.getAllUsers(pageNum, pageSize);
         return Result.success(page);
@@ -96,4 +129,24 @@ public class AdminController {
             return Result.error(400, "角色管理失败: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * GET /api/admin/cache/stats
+     * 查看二级缓存 (L1 本地 / L2 Redis) 的命中率
+     */
+    @GetMapping("/cache/stats")
+    public Result<Map<String, Map<String, Object>>> getCacheStats() {
+        return Result.success(cacheManager.getStats());
+    }
+
+    /**
+     * GET /api/admin/login/stats
+     * 查看登录的负载情况 (密码校验线程池的耗时/队列长度, 限流拒绝次数)
+     */
+    @GetMapping("/login/stats")
+    public Result<Map<String, Map<String, Object>>> getLoginStats() {
+        return Result.success(Map.of(
+                "passwordHash", passwordEncoder.getStats(),
+                "rateLimit", loginRateLimiter.getStats()));
+    }
+}
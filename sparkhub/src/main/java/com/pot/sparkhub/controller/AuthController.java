@@ -1,10 +1,16 @@
 package com.pot.sparkhub.controller;
 
 import com.pot.sparkhub.common.Result;
+import com.pot.sparkhub.common.TooManyRequestsException;
 import com.pot.sparkhub.dto.LoginRequest;
+import com.pot.sparkhub.dto.RefreshTokenRequest;
 import com.pot.sparkhub.dto.RegisterRequest;
 import com.pot.sparkhub.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -21,25 +27,40 @@ public class AuthController {
 
     // 注册
     @PostMapping("/register")
-    public Result<?> register(@RequestBody RegisterRequest registerRequest) {
+    public ResponseEntity<Result<?>> register(@RequestBody RegisterRequest registerRequest) {
         try {
             authService.register(registerRequest);
-            return Result.success();
+            return ResponseEntity.ok(Result.success());
+        } catch (TooManyRequestsException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
-            return Result.error(400, e.getMessage()); // 400 Bad Request
+            return ResponseEntity.ok(Result.error(400, e.getMessage())); // 400 Bad Request
         }
     }
 
     // 登录
     @PostMapping("/login")
-    public Result<Map<String, Object>> login(@RequestBody LoginRequest loginRequest) { // <-- 修改后
+    public ResponseEntity<Result<?>> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) { // <-- 修改后
         try {
             // Map<String, String> tokenMap = authService.login(loginRequest); // <-- 修改前
-            Map<String, Object> responseMap = authService.login(loginRequest); // <-- 修改后
-            return Result.success(responseMap);
+            Map<String, Object> responseMap = authService.login(loginRequest, request.getRemoteAddr()); // <-- 修改后
+            return ResponseEntity.ok(Result.success(responseMap));
+        } catch (TooManyRequestsException e) {
+            // 限流或密码校验排队已满: 429, 客户端稍后重试
+            return tooManyRequests(e);
         } catch (Exception e) {
             // 认证失败通常是 401
-            return Result.error(401, "认证失败: " + e.getMessage());
+            return ResponseEntity.ok(Result.error(401, "认证失败: " + e.getMessage()));
+        }
+    }
+
+    // 刷新 Token (访问 Token 过期后调用)
+    @PostMapping("/refresh")
+    public Result<Map<String, Object>> refresh(@RequestBody RefreshTokenRequest refreshRequest) {
+        try {
+            return Result.success(authService.refresh(refreshRequest.getRefreshToken()));
+        } catch (Exception e) {
+            return Result.error(401, "刷新失败: " + e.getMessage());
         }
     }
 
@@ -54,4 +75,11 @@ public class AuthController {
             return Result.error(500, e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // (辅助方法) 429 响应
+    private ResponseEntity<Result<?>> tooManyRequests(TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Result.error(429, e.getMessage()));
+    }
+}
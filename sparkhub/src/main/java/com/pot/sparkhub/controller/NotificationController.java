@@ -5,11 +5,17 @@ import com.pot.sparkhub.common.Result;
 import com.pot.sparkhub.dto.NotificationDTO;
 import com.pot.sparkhub.entity.User;
 import com.pot.sparkhub.service.NotificationService;
+import com.pot.sparkhub.service.impl.NotificationPusher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Collections;
 import java.util.Map;
@@ -22,6 +28,10 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
 
+    // SSE 连接登记在本节点的推送组件中 (SseEmitter 不进入 Service 层)
+    @Autowired
+    private NotificationPusher notificationPusher;
+
     /**
      * (辅助方法) 获取当前登录的用户
      * 用于保证所有操作只针对当前用户
@@ -46,18 +56,43 @@ public class NotificationController {
         return Result.success(response);
     }
 
+    /**
+     * GET /api/notifications/stream
+     * 实时推送 (SSE): 连接后立即推送一次未读数, 之后推送新通知 ("notification") 和未读数变化 ("unread")
+     * 本节点连接数已满时返回 503, 客户端稍后重连
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamNotifications() {
+        User currentUser = getCurrentUser();
+        SseEmitter emitter = notificationPusher.subscribe(currentUser.getId());
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
     /**
      * GET /api/notifications
      * 获取当前登录用户的通知列表 (分页 + 过滤)
+     * 游标模式: /api/notifications?after=&pageSize=10 (第一页 after 为空, 之后传上一页的 nextCursor)
      */
     @GetMapping
-    public Result<PageInfo<NotificationDTO>> getMyNotifications(
+    public Result<?> getMyNotifications(
             @RequestParam(defaultValue = "1") int pageNum,
             @RequestParam(defaultValue = "10") int pageSize,
+            @RequestParam(required = false) String after,
             // filter 可选值: "all", "unread", "system", "interaction"
             @RequestParam(required = false) String filter) {
 
         User currentUser = getCurrentUser();
+        if (after != null) {
+            try {
+                return Result.success(notificationService.getNotificationsForUserAfter(
+                        currentUser.getId(), filter, after, pageSize));
+            } catch (RuntimeException e) {
+                return Result.error(400, e.getMessage());
+            }
+        }
         PageInfo<NotificationDTO> notifications = notificationService.getNotificationsForUser(
                 currentUser.getId(), filter, pageNum, pageSize
         );
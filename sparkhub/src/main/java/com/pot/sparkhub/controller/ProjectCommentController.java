@@ -20,17 +20,45 @@ public class ProjectCommentController {
     /**
      * GET /api/projects/{projectId}/comments
      * [公开] 获取项目的所有评论
+     * 游标模式: ?after=&pageSize=10 只返回一页顶级评论 (附带 replyCount), 回复通过 /{commentId}/replies 加载
      */
     @GetMapping
-    public Result<List<CommentDetailDTO>> getComments(
+    public Result<?> getComments(
             @PathVariable Long projectId,
-            @RequestParam(defaultValue = "time") String sortBy // <-- [新增]
+            @RequestParam(defaultValue = "time") String sortBy, // <-- [新增]
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int pageSize
     ) {
+        if (after != null) {
+            try {
+                return Result.success(commentService.getTopLevelComments(projectId, sortBy, after, pageSize));
+            } catch (RuntimeException e) {
+                return Result.error(400, e.getMessage());
+            }
+        }
         // List<CommentDetailDTO> comments = commentService.getCommentsByProject(projectId); // <-- 修改前
         List<CommentDetailDTO> comments = commentService.getCommentsByProject(projectId, sortBy); // <-- 修改后
         return Result.success(comments);
     }
 
+    /**
+     * GET /api/projects/{projectId}/comments/{commentId}/replies?after=&pageSize=10
+     * [公开] 游标分页获取一条评论的直接回复 (按时间正序)
+     */
+    @GetMapping("/{commentId}/replies")
+    public Result<?> getReplies(
+            @PathVariable Long projectId,
+            @PathVariable Long commentId,
+            @RequestParam(defaultValue = "") String after,
+            @RequestParam(defaultValue = "10") int pageSize
+    ) {
+        try {
+            return Result.success(commentService.getReplies(projectId, commentId, after, pageSize));
+        } catch (RuntimeException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
     /**
      * POST /api/projects/{projectId}/comments
      * [需登录] 发表评论
@@ -1,6 +1,7 @@
 package com.pot.sparkhub.controller;
 
 import com.github.pagehelper.PageInfo;
+import com.pot.sparkhub.common.ProjectSort;
 import com.pot.sparkhub.common.Result;
 import com.pot.sparkhub.dto.ProjectCreateDTO;
 import com.pot.sparkhub.dto.ProjectDetailDTO;
@@ -25,15 +26,51 @@ public class ProjectController {
 
     // GET /api/projects
     // (例如: /api/projects?pageNum=1&pageSize=5)
+    // 游标模式: /api/projects?after=&pageSize=5 (第一页 after 为空, 之后传上一页的 nextCursor)
+    // 筛选/排序: /api/projects?categoryId=2&sort=endingSoon (sort = newest | endingSoon | mostFunded | percentFunded)
     @GetMapping
-    public Result<PageInfo<ProjectSummaryDTO>> getProjects(
+    public Result<?> getProjects(
             @RequestParam(defaultValue = "1") int pageNum,
-            @RequestParam(defaultValue = "10") int pageSize
+            @RequestParam(defaultValue = "10") int pageSize,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String sort
     ) {
-        PageInfo<ProjectSummaryDTO> page = projectService.getPublicProjects(pageNum, pageSize);
+        ProjectSort projectSort;
+        try {
+            projectSort = ProjectSort.from(sort);
+        } catch (RuntimeException e) {
+            return Result.error(400, e.getMessage());
+        }
+
+        if (after != null) {
+            try {
+                return Result.success(projectService.getPublicProjectsAfter(categoryId, projectSort, after, pageSize));
+            } catch (RuntimeException e) {
+                return Result.error(400, e.getMessage());
+            }
+        }
+        PageInfo<ProjectSummaryDTO> page = projectService.getPublicProjects(categoryId, projectSort, pageNum, pageSize);
         return Result.success(page);
     }
 
+    /**
+     * GET /api/projects/search?q=关键词&pageNum=1&pageSize=10
+     * 全文搜索 "众筹中" 的项目 (标题 + 详情, 按相关度排序)
+     */
+    @GetMapping("/search")
+    public Result<?> searchProjects(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "1") int pageNum,
+            @RequestParam(defaultValue = "10") int pageSize
+    ) {
+        try {
+            return Result.success(projectService.searchProjects(q, pageNum, pageSize));
+        } catch (RuntimeException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
     /**
      * GET /api/projects/my
      * 获取我发起的项目 (需要 ROLE_CREATOR)
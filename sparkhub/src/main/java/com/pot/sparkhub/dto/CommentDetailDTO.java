@@ -27,6 +27,8 @@ public class CommentDetailDTO implements Serializable {
     private List<CommentDetailDTO> replies;
     // --- 点赞数 ---
     private Integer likeCount;
+    // --- 直接回复数 (分页模式下 replies 为空, 回复通过单独的接口加载) ---
+    private Integer replyCount;
 
     private boolean isLiked = false;
 }
\ No newline at end of file
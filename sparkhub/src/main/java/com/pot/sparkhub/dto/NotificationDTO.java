@@ -17,6 +17,8 @@ public class NotificationDTO implements Serializable {
     private String linkUrl;
     private boolean isRead;
     private LocalDateTime createTime;
+    // 合并的互动次数 (聚合通知, 例如 "某某等 N 人点赞了您的评论")
+    private int actorCount;
 
     // (来自 JOIN user 表)
     private Long senderId;
@@ -29,9 +29,12 @@ public class ProjectDetailDTO extends ProjectSummaryDTO implements Serializable
      */
     private List<Long> backerIds;
 
-    // --- 额外字段: 当前用户是否已收藏该项目 ---
+    // --- 额外字段: 当前用户是否已收藏该项目 (不进入缓存, 每次请求单独叠加) ---
     private Boolean isFavorite;
 
+    // --- 额外字段: 当前用户是否已支持该项目 (同上) ---
+    private Boolean isBacked;
+
     // --- 额外字段: 分类ID ---
     private Long categoryId;
 }
\ No newline at end of file
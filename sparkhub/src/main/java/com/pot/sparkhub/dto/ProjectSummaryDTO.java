@@ -20,6 +20,7 @@ public class ProjectSummaryDTO implements Serializable {
     private LocalDateTime createTime;
     private LocalDateTime endTime;
     private Integer status;
+    private BigDecimal fundedRatio; // 完成度 (current_amount / goal_amount, 数据库生成列)
 
     // --- 通过 JOIN 获得的额外信息 ---
     private String creatorName; // 发起人用户名
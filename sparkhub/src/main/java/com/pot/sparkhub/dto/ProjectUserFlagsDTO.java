@@ -0,0 +1,19 @@
+package com.pot.sparkhub.dto;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+// 项目详情中 "与当前用户相关" 的标记 (叠加在共享的项目详情缓存之上)
+@Data
+public class ProjectUserFlagsDTO implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    // 当前用户是否已收藏该项目
+    private boolean favorite;
+
+    // 当前用户是否已支持 (已支付) 该项目
+    private boolean backed;
+}
@@ -19,4 +19,11 @@ public class Notification implements Serializable {
     private boolean isRead;
     private LocalDateTime createTime;
     private Long senderId;
+
+    // 聚合通知: 同一聚合键的未读通知合并为一条 (普通通知为 null)
+    private String aggregateKey;
+    // 合并的互动次数
+    private int actorCount = 1;
+    // 合并后的内容模板, "{count}" 会被替换为次数 (不存库)
+    private transient String aggregateContent;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.pot.sparkhub.entity;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+public class ProjectCommentLike implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+    private Long userId;
+    private Long commentId;
+    private LocalDateTime createTime;
+}
\ No newline at end of file
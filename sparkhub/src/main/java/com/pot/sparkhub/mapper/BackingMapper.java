@@ -4,6 +4,7 @@ import com.pot.sparkhub.dto.BackingDetailDTO;
 import com.pot.sparkhub.entity.Backing;
 import org.apache.ibatis.annotations.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -38,4 +39,22 @@ public interface BackingMapper {
      * (JOIN project 和 project_reward)
      */
     List<BackingDetailDTO> findBackingsByUserId(@Param("userId") Long userId);
+
+    /**
+     * 6. 统计某回报在指定时间之后创建的待支付订单 (用于初始化名额预占计数器)
+     */
+    @Select("SELECT COUNT(*) FROM backing WHERE reward_id = #{rewardId} AND status = 0 AND create_time > #{since}")
+    int countPendingByRewardSince(@Param("rewardId") Long rewardId, @Param("since") LocalDateTime since);
+
+    /**
+     * 7. 查询并锁定一批超时的待支付订单 (在 XML 中实现)
+     * (按创建时间从早到晚, 最多 limit 条)
+     */
+    List<Backing> findExpiredPendingForUpdate(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * 8. 批量取消订单 (在 XML 中实现)
+     * (只更新仍为 "待支付" 的订单)
+     */
+    int cancelByIds(@Param("ids") List<Long> ids);
 }
\ No newline at end of file
@@ -1,37 +1,39 @@
 package com.pot.sparkhub.mapper;
 
+import com.pot.sparkhub.entity.ProjectCommentLike;
 import org.apache.ibatis.annotations.*;
 
+import java.util.List;
+
 @Mapper
 public interface CommentLikeMapper {
 
     /**
-     * 检查点赞是否已存在
+     * 查询一条评论的所有点赞用户 (加载 Redis 点赞集合)
      */
-    @Select("SELECT COUNT(*) FROM project_comment_like WHERE user_id = #{userId} AND comment_id = #{commentId}")
-    boolean exists(@Param("userId") Long userId, @Param("commentId") Long commentId);
+    @Select("SELECT user_id FROM project_comment_like WHERE comment_id = #{commentId}")
+    List<Long> findUserIdsByCommentId(@Param("commentId") Long commentId);
 
     /**
-     * 插入点赞
+     * 查询一批评论的所有点赞 (构建本地点赞位图, 在 XML 中实现)
      */
-    @Insert("INSERT INTO project_comment_like (user_id, comment_id, create_time) VALUES (#{userId}, #{commentId}, NOW())")
-    void insert(@Param("userId") Long userId, @Param("commentId") Long commentId);
+    List<ProjectCommentLike> findByCommentIds(@Param("commentIds") List<Long> commentIds);
 
     /**
-     * 删除点赞
+     * 批量插入点赞 (在 XML 中实现, 已存在的点赞被忽略)
+     * @return 实际插入的行数
      */
-    @Delete("DELETE FROM project_comment_like WHERE user_id = #{userId} AND comment_id = #{commentId}")
-    void delete(@Param("userId") Long userId, @Param("commentId") Long commentId);
+    int insertIgnoreBatch(@Param("commentId") Long commentId, @Param("userIds") List<Long> userIds);
 
     /**
-     * [核心] 增加评论的点赞数
+     * 批量删除点赞 (在 XML 中实现)
+     * @return 实际删除的行数
      */
-    @Update("UPDATE project_comment SET like_count = like_count + 1 WHERE id = #{commentId}")
-    void incrementCommentLikeCount(@Param("commentId") Long commentId);
+    int deleteBatch(@Param("commentId") Long commentId, @Param("userIds") List<Long> userIds);
 
     /**
-     * [核心] 减少评论的点赞数
+     * [核心] 调整评论的点赞数 (写回时每条评论只更新一次)
      */
-    @Update("UPDATE project_comment SET like_count = GREATEST(0, like_count - 1) WHERE id = #{commentId}")
-    void decrementCommentLikeCount(@Param("commentId") Long commentId);
-}
\ No newline at end of file
+    @Update("UPDATE project_comment SET like_count = GREATEST(0, like_count + #{delta}) WHERE id = #{commentId}")
+    void addCommentLikeCount(@Param("commentId") Long commentId, @Param("delta") int delta);
+}
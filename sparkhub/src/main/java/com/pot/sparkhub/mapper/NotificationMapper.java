@@ -3,6 +3,7 @@ package com.pot.sparkhub.mapper;
 import com.pot.sparkhub.dto.NotificationDTO;
 import com.pot.sparkhub.entity.Notification;
 import org.apache.ibatis.annotations.*;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -16,6 +17,23 @@ public interface NotificationMapper {
     @Options(useGeneratedKeys = true, keyProperty = "id")
     void insert(Notification notification);
 
+    /**
+     * 批量插入通知 (一条多行 INSERT, 在 XML 中实现)
+     */
+    int insertBatch(@Param("notifications") List<Notification> notifications);
+
+    /**
+     * 插入或合并一条聚合通知 (在 XML 中实现)
+     * @return 1 = 新插入一条未读通知; 2 = 合并到已有的未读通知
+     */
+    int upsertAggregate(Notification notification);
+
+    /**
+     * 查询合并后的内容和次数 (用于推送)
+     */
+    @Select("SELECT id, content, actor_count FROM notification WHERE id = #{id}")
+    Notification findAggregateById(@Param("id") Long id);
+
     /**
      * [复杂查询] 获取一个用户的所有通知 (在 XML 中实现)
      * (支持 JOIN 发送者信息 和 动态过滤)
@@ -25,6 +43,19 @@ public interface NotificationMapper {
             @Param("filter") String filter
     );
 
+    /**
+     * [复杂查询] 游标分页获取一个用户的通知 (在 XML 中实现)
+     * 按 (create_time, id) 倒序, 从 (afterTime, afterId) 之后开始; 第一页两者为 null
+     * (聚合通知有新互动时 create_time 会更新, 即移到最前面, 不会在后续页中重复出现)
+     */
+    List<NotificationDTO> findNotificationsByRecipientIdAfter(
+            @Param("recipientId") Long recipientId,
+            @Param("filter") String filter,
+            @Param("afterTime") LocalDateTime afterTime,
+            @Param("afterId") Long afterId,
+            @Param("limit") int limit
+    );
+
     /**
      * 查询未读通知总数
      */
@@ -34,9 +65,10 @@ public interface NotificationMapper {
     /**
      * 将单条通知标记为已读 (安全)
      * (必须同时检查 id 和 recipient_id，防止用户恶意修改别人的通知)
+     * (只更新未读的通知, 影响行数可用于维护未读数)
      */
     @Update("UPDATE notification SET is_read = true " +
-            "WHERE id = #{notificationId} AND recipient_id = #{recipientId}")
+            "WHERE id = #{notificationId} AND recipient_id = #{recipientId} AND is_read = false")
     int markAsRead(@Param("notificationId") Long notificationId, @Param("recipientId") Long recipientId);
 
     /**
@@ -45,4 +77,21 @@ public interface NotificationMapper {
     @Update("UPDATE notification SET is_read = true " +
             "WHERE recipient_id = #{recipientId} AND is_read = false")
     int markAllAsRead(@Param("recipientId") Long recipientId);
+
+    // --- 归档 (在 XML 中实现) ---
+
+    /**
+     * 锁定并返回一批早于 cutoff 的已读通知 ID
+     */
+    List<Long> findReadBeforeForUpdate(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * 将通知复制到 notification_archive (保留原 ID)
+     */
+    int copyToArchive(@Param("ids") List<Long> ids);
+
+    /**
+     * 从 notification 表中删除
+     */
+    int deleteByIds(@Param("ids") List<Long> ids);
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.pot.sparkhub.dto.CommentDetailDTO;
 import com.pot.sparkhub.entity.ProjectComment;
 import org.apache.ibatis.annotations.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -31,10 +32,31 @@ public interface ProjectCommentMapper {
     List<CommentDetailDTO> findByProjectId(@Param("projectId") Long projectId);
 
     /**
-     * [批量查询] 查找一个用户在指定评论 ID 列表中的所有点赞
-     * @param userId     当前用户 ID
-     * @param commentIds 评论 ID 列表
-     * @return 该用户已点赞的评论 ID 列表
+     * 回复数 +1 (发表回复时更新父评论)
      */
-    List<Long> findLikedCommentIdsByUser(@Param("userId") Long userId, @Param("commentIds") List<Long> commentIds);
+    @Update("UPDATE project_comment SET reply_count = reply_count + 1 WHERE id = #{id}")
+    int incrementReplyCount(@Param("id") Long id);
+
+    /**
+     * 游标分页查询一个项目的顶级评论 (在 XML 中实现)
+     * @param sortBy     "time" (按时间倒序) 或 "hotness" (按点赞数倒序)
+     * @param afterTime  上一页最后一条的创建时间 (按时间排序时使用)
+     * @param afterLikes 上一页最后一条的点赞数 (按热度排序时使用)
+     * @param afterId    上一页最后一条的 ID (第一页为 null)
+     */
+    List<CommentDetailDTO> findTopLevelAfter(@Param("projectId") Long projectId,
+                                             @Param("sortBy") String sortBy,
+                                             @Param("afterTime") LocalDateTime afterTime,
+                                             @Param("afterLikes") Long afterLikes,
+                                             @Param("afterId") Long afterId,
+                                             @Param("limit") int limit);
+
+    /**
+     * 游标分页查询一条评论的直接回复 (在 XML 中实现, 按时间正序)
+     */
+    List<CommentDetailDTO> findRepliesAfter(@Param("projectId") Long projectId,
+                                            @Param("parentId") Long parentId,
+                                            @Param("afterTime") LocalDateTime afterTime,
+                                            @Param("afterId") Long afterId,
+                                            @Param("limit") int limit);
 }
\ No newline at end of file
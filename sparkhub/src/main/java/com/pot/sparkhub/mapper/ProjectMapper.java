@@ -1,13 +1,17 @@
 package com.pot.sparkhub.mapper;
 
+import com.pot.sparkhub.common.ProjectSort;
 import com.pot.sparkhub.dto.ProjectDetailDTO;
 import com.pot.sparkhub.dto.ProjectSummaryDTO;
+import com.pot.sparkhub.dto.ProjectUserFlagsDTO;
 import com.pot.sparkhub.entity.Project;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -16,17 +20,56 @@ public interface ProjectMapper {
     /**
      * [复杂查询] 分页查询项目摘要列表
      * (在 XML 中实现)
-     * @param status 过滤项目状态 (e.g., 1=众筹中)
+     * @param status     过滤项目状态 (e.g., 1=众筹中, 可为 null)
+     * @param categoryId 过滤分类 (可为 null)
+     * @param sort       排序方式 (null 为最新发布)
      */
-    List<ProjectSummaryDTO> findProjectSummaries(@Param("status") Integer status);
+    List<ProjectSummaryDTO> findProjectSummaries(@Param("status") Integer status,
+                                                 @Param("categoryId") Long categoryId,
+                                                 @Param("sort") ProjectSort sort);
+
+    /**
+     * [游标分页] 按 (排序字段, id) seek, 不做 COUNT(*)
+     * (在 XML 中实现, 依赖 project 表上 (status, 排序字段) 的复合索引)
+     * @param status      过滤项目状态 (可为 null)
+     * @param categoryId  过滤分类 (可为 null)
+     * @param sort        排序方式 (null 为最新发布)
+     * @param afterTime   上一页最后一条的 create_time / end_time (按时间排序时)
+     * @param afterAmount 上一页最后一条的 current_amount / funded_ratio (按金额排序时)
+     * @param afterId     上一页最后一条的 id (第一页为 null)
+     * @param limit       查询条数 (pageSize + 1, 用于判断是否还有下一页)
+     */
+    List<ProjectSummaryDTO> findProjectSummariesAfter(@Param("status") Integer status,
+                                                      @Param("categoryId") Long categoryId,
+                                                      @Param("sort") ProjectSort sort,
+                                                      @Param("afterTime") LocalDateTime afterTime,
+                                                      @Param("afterAmount") BigDecimal afterAmount,
+                                                      @Param("afterId") Long afterId,
+                                                      @Param("limit") int limit);
 
     List<ProjectSummaryDTO> findProjectSummariesByCreatorId(Long creatorId);
 
     /**
-     * [复杂查询] 根据ID查询项目详情 (包含回报)
+     * 按 ID 批量查询项目摘要 (用于搜索结果, 顺序不保证)
      * (在 XML 中实现)
      */
-    ProjectDetailDTO findProjectDetailById(@Param("id") Long id, @Param("currentUserId") Long currentUserId);
+    List<ProjectSummaryDTO> findProjectSummariesByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * [复杂查询] 根据ID查询项目详情 (包含回报)
+     * (在 XML 中实现, 只包含与用户无关的字段, 可以被所有用户共享缓存)
+     */
+    ProjectDetailDTO findProjectDetailById(@Param("id") Long id);
+
+    /**
+     * 一次查询出用户对项目的收藏/支持状态
+     * @param projectId 项目ID
+     * @param userId    用户ID
+     */
+    @Select("SELECT " +
+            "EXISTS(SELECT 1 FROM user_favorite WHERE user_id = #{userId} AND project_id = #{projectId}) AS favorite, " +
+            "EXISTS(SELECT 1 FROM backing WHERE backer_id = #{userId} AND project_id = #{projectId} AND status = 1) AS backed")
+    ProjectUserFlagsDTO findUserFlags(@Param("projectId") Long projectId, @Param("userId") Long userId);
 
     /**
      * 插入一个新项目 (在 XML 中实现)
@@ -47,6 +90,30 @@ public interface ProjectMapper {
     @Select("SELECT * FROM project WHERE status = #{status}")
     List<Project> findProjectsByStatus(@Param("status") Integer status);
 
+    /**
+     * 查询并锁定一批已到截止时间的 "众筹中" 项目 (在 XML 中实现)
+     * (按截止时间从早到晚, 最多 limit 条, 依赖 idx_project_status_end 索引)
+     */
+    List<Project> findExpiredActiveForUpdate(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 批量结束众筹: 达到目标金额为 "成功"(2), 否则为 "失败"(3) (在 XML 中实现)
+     */
+    int finishProjects(@Param("ids") List<Long> ids);
+
+    /**
+     * 查询在指定时间段内截止的 "众筹中" 项目的截止时间 (用于预先设置定时器)
+     * (只返回 id 和 end_time)
+     */
+    @Select("SELECT id, end_time FROM project WHERE status = 1 AND end_time > #{from} AND end_time <= #{to}")
+    List<Project> findActiveEndingBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 按 id 分批读取项目 (用于重建搜索索引, 只取索引需要的字段)
+     */
+    @Select("SELECT id, category_id, title, description, status FROM project WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Project> findProjectsForIndex(@Param("afterId") Long afterId, @Param("limit") int limit);
+
     /**
      * 更新一个项目 (在 XML 中实现)
      */
@@ -5,6 +5,7 @@ import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 
@@ -41,6 +42,13 @@ public interface RewardMapper {
      */
     void update(ProjectReward reward);
 
+    /**
+     * 条件扣减库存 (库存不足时不更新)
+     * @return 影响行数 (0 = 已售罄)
+     */
+    @Update("UPDATE project_reward SET stock = stock - 1 WHERE id = #{id} AND stock > 0")
+    int decrementStock(@Param("id") Long id);
+
     /**
      * [新增] 根据项目 ID 查找所有回报 (用于删除图片)
      */
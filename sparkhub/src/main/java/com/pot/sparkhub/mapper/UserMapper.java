@@ -35,6 +35,7 @@ public interface UserMapper {
     /**
      * 插入新用户
      * (这个也在XML中实现, 以便获取返回的主键id)
+     * 用户名/邮箱重复时抛出 DuplicateKeyException (由唯一索引保证, 不再事先查询)
      */
     void insert(User user);
 
@@ -44,27 +45,75 @@ public interface UserMapper {
     @Insert("INSERT INTO user_role (user_id, role_id) VALUES (#{userId}, #{roleId})")
     void insertUserRole(@Param("userId") Long userId, @Param("roleId") Long roleId);
 
+    /**
+     * 为用户添加角色 (已有该角色或用户不存在时不插入)
+     * @return 插入的行数 (0 或 1)
+     */
+    @Insert("INSERT IGNORE INTO user_role (user_id, role_id) VALUES (#{userId}, #{roleId})")
+    int insertUserRoleIgnore(@Param("userId") Long userId, @Param("roleId") Long roleId);
+
     /**
      * 移除用户的特定角色
+     * @return 删除的行数 (0 表示原本没有该角色)
      */
     @Delete("DELETE FROM user_role WHERE user_id = #{userId} AND role_id = #{roleId}")
-    void deleteUserRole(@Param("userId") Long userId, @Param("roleId") Long roleId);
+    int deleteUserRole(@Param("userId") Long userId, @Param("roleId") Long roleId);
+
+    /**
+     * (辅助) 查询所有角色 (启动时缓存, 见 RoleIdCache)
+     */
+    @Select("SELECT id, name FROM role")
+    List<Role> findAllRoles();
+
+    /**
+     * 根据 ID 查询用户 (包含角色信息), 在 XML 中实现
+     */
+    User findWithRolesById(@Param("id") Long id);
+
+    /**
+     * [Admin] 查询所有用户 (不含角色, 用于分页), 在 XML 中实现
+     */
+    List<User> findAllUsers();
+
+    /**
+     * 批量查询用户的角色 (一次 IN 查询), 在 XML 中实现
+     * @return 每个有角色的用户一个 User (只包含 id 和 roles)
+     */
+    List<User> findRolesByUserIds(@Param("userIds") List<Long> userIds);
 
     /**
-     * (辅助) 根据角色名(e.g., "ROLE_USER")查找角色ID
+     * [Admin] 搜索用户 (seek 分页, 按 id 升序), 在 XML 中实现
+     * @param roleId  只返回拥有该角色的用户, null 表示不过滤
+     * @param afterId 上一页最后一个用户的 id (第一页传 0)
+     * @param limit   查询条数
      */
-    @Select("SELECT id FROM role WHERE name = #{name}")
-    Long findRoleIdByName(@Param("name") String name);
+    List<User> searchUsers(@Param("roleId") Long roleId,
+                           @Param("afterId") Long afterId,
+                           @Param("limit") int limit);
 
     /**
-     * [Admin] 查询所有用户 (带角色), 在 XML 中实现
+     * [Admin] 按用户名前缀搜索用户 (seek 分页, 按用户名升序), 在 XML 中实现
+     * @param prefix        用户名前缀 (已转义 LIKE 通配符)
+     * @param roleId        只返回拥有该角色的用户, null 表示不过滤
+     * @param afterUsername 上一页最后一个用户的用户名 (第一页传 null)
+     * @param limit         查询条数
      */
-    List<User> findAllWithRoles();
+    List<User> searchUsersByUsername(@Param("prefix") String prefix,
+                                     @Param("roleId") Long roleId,
+                                     @Param("afterUsername") String afterUsername,
+                                     @Param("limit") int limit);
 
     /**
-     * (嵌套查询) 根据用户ID查找其所有角色
+     * [Admin] 按邮箱前缀搜索用户名不匹配该前缀的用户 (seek 分页, 按邮箱升序), 在 XML 中实现
+     * @param prefix     邮箱前缀 (已转义 LIKE 通配符)
+     * @param roleId     只返回拥有该角色的用户, null 表示不过滤
+     * @param afterEmail 上一页最后一个用户的邮箱 (null 表示从头开始)
+     * @param limit      查询条数
      */
-    List<Role> findRolesByUserId(@Param("userId") Long userId);
+    List<User> searchUsersByEmail(@Param("prefix") String prefix,
+                                  @Param("roleId") Long roleId,
+                                  @Param("afterEmail") String afterEmail,
+                                  @Param("limit") int limit);
 
     /**
      * 头像更新
@@ -0,0 +1,53 @@
+package com.pot.sparkhub.scheduler;
+
+import com.pot.sparkhub.service.impl.BackingCanceller;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Component
+public class BackingScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(BackingScheduler.class);
+
+    @Autowired
+    private BackingCanceller backingCanceller;
+
+    // 待支付订单的有效期 (毫秒), 与回报名额的预占时长一致
+    @Value("${sparkhub.backing.reservation-ttl:900000}")
+    private long reservationTtl;
+
+    // 每批取消的订单数 (每批一个短事务)
+    @Value("${sparkhub.backing.sweep-batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 定时任务：取消超时未支付的订单
+     * "fixedDelay = 60000" = 上一次执行结束后 1 分钟再执行
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void cancelExpiredBackings() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(reservationTtl));
+        int total = 0;
+        try {
+            // 分批取消, 直到某一批不满 (每批独立提交, 不长时间持有锁)
+            int canceled;
+            do {
+                canceled = backingCanceller.cancelExpiredBatch(cutoff, batchSize);
+                total += canceled;
+            } while (canceled == batchSize);
+        } catch (Exception e) {
+            log.warn("定时任务：取消超时订单失败: {}", e.getMessage());
+        }
+
+        if (total > 0) {
+            log.info("定时任务：共取消了 {} 个超时未支付的订单。", total);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.pot.sparkhub.scheduler;
+
+import com.pot.sparkhub.service.impl.CommentLikeBuffer;
+import com.pot.sparkhub.service.impl.CommentLikeFlusher;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class CommentLikeScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentLikeScheduler.class);
+
+    @Autowired
+    private CommentLikeBuffer likeBuffer;
+
+    @Autowired
+    private CommentLikeFlusher likeFlusher;
+
+    /**
+     * 定时任务：把 Redis 中缓冲的评论点赞写回数据库
+     * "fixedDelay = 1000" = 上一次执行结束后 1 秒再执行
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void flushCommentLikes() {
+        flush();
+    }
+
+    /**
+     * 应用关闭前写回最后一批
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * 写回一批操作: 每条评论一个事务; 全部成功后才确认, 否则释放该批次, 在下一轮重试
+     * (每个节点领取各自的批次, 只确认自己领取的批次; synchronized: 定时任务和关闭钩子可能同时触发)
+     */
+    private synchronized void flush() {
+        CommentLikeBuffer.Batch batch;
+        try {
+            batch = likeBuffer.takePending();
+        } catch (Exception e) {
+            log.warn("定时任务：读取待写回的点赞失败: {}", e.getMessage());
+            return;
+        }
+        if (batch == null) {
+            return;
+        }
+
+        boolean allFlushed = true;
+        for (Map.Entry<Long, Map<Long, Boolean>> entry : batch.ops().entrySet()) {
+            List<Long> liked = new ArrayList<>();
+            List<Long> unliked = new ArrayList<>();
+            entry.getValue().forEach((userId, like) -> (like ? liked : unliked).add(userId));
+            try {
+                likeFlusher.flushComment(entry.getKey(), liked, unliked);
+            } catch (Exception e) {
+                allFlushed = false;
+                log.warn("定时任务：写回评论 {} 的点赞失败: {}", entry.getKey(), e.getMessage());
+            }
+        }
+
+        try {
+            if (allFlushed) {
+                likeBuffer.completeFlush(batch);
+            } else {
+                likeBuffer.releaseBatch(batch);
+            }
+        } catch (Exception e) {
+            log.warn("定时任务：确认点赞写回失败 (租约到期后重试): {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.pot.sparkhub.scheduler;
+
+import com.pot.sparkhub.service.impl.NotificationArchiver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+public class NotificationScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationScheduler.class);
+
+    @Autowired
+    private NotificationArchiver notificationArchiver;
+
+    // 已读通知在 notification 表中的保留天数
+    @Value("${sparkhub.notification.retention-days:90}")
+    private int retentionDays;
+
+    // 每批归档的通知数 (每批一个短事务)
+    @Value("${sparkhub.notification.archive-batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 定时任务：归档超过保留期的已读通知
+     * "fixedDelay = 3600000" = 上一次执行结束后 1 小时再执行
+     */
+    @Scheduled(fixedDelay = 3600000)
+    public void archiveReadNotifications() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        int total = 0;
+        try {
+            // 分批归档, 直到某一批不满 (每批独立提交, 不长时间持有锁)
+            int archived;
+            do {
+                archived = notificationArchiver.archiveBatch(cutoff, batchSize);
+                total += archived;
+            } while (archived == batchSize);
+        } catch (Exception e) {
+            log.warn("定时任务：归档已读通知失败: {}", e.getMessage());
+        }
+
+        if (total > 0) {
+            log.info("定时任务：共归档了 {} 条已读通知。", total);
+        }
+    }
+}
@@ -2,17 +2,22 @@ package com.pot.sparkhub.scheduler;
 
 import com.pot.sparkhub.entity.Project;
 import com.pot.sparkhub.mapper.ProjectMapper;
-import com.pot.sparkhub.service.NotificationService;
+import com.pot.sparkhub.service.impl.ProjectExpirer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
 
 @Component
 public class ProjectScheduler {
@@ -23,75 +28,78 @@ public class ProjectScheduler {
     private ProjectMapper projectMapper;
 
     @Autowired
-    private NotificationService notificationService;
+    private ProjectExpirer projectExpirer;
 
-    // 项目状态 (从 ProjectServiceImpl 复制)
-    private static final Integer STATUS_ACTIVE = 1;     // 众筹中
-    private static final Integer STATUS_SUCCESSFUL = 2; // 众筹成功
-    private static final Integer STATUS_FAILED = 3;     // 众筹失败
+    // Spring Boot 自动配置的调度器 (线程数见 spring.task.scheduling.pool.size)
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    // 每批 (每个事务) 结束的项目数
+    @Value("${sparkhub.project.expire-batch-size:200}")
+    private int batchSize;
+
+    // 预先设置定时器的时间窗口 (毫秒), 必须大于 planTimers 的执行间隔
+    @Value("${sparkhub.project.timer-horizon:300000}")
+    private long timerHorizon;
+
+    // 已设置的定时器 (项目ID -> 定时器), 避免重复设置
+    private final Map<Long, ScheduledFuture<?>> timers = new ConcurrentHashMap<>();
 
     /**
-     * 定时任务：检查众筹到期的项目
-     * "fixedRate = 3600000" = 每 1 小时 (3,600,000 毫秒) 执行一次
-     * (你可以调整这个值，例如 60000 = 每分钟, 用于测试)
+     * 定时任务：结束所有已到期的众筹项目 (兜底: 应用重启、定时器错过等情况)
+     * 同时为即将到期的项目设置精确的定时器
+     * "fixedDelay = 60000" = 上一次执行结束后 1 分钟再执行
      */
-    @Scheduled(fixedRate = 3600000)
-    @Transactional
+    @Scheduled(fixedDelay = 60000)
     public void checkExpiredProjects() {
-        log.info("定时任务：开始检查到期的众筹项目...");
-
-        // 1. 查找所有“众筹中”的项目
-        List<Project> activeProjects = projectMapper.findProjectsByStatus(STATUS_ACTIVE);
-        if (activeProjects.isEmpty()) {
-            log.info("定时任务：没有正在众筹的项目，任务结束。");
-            return;
-        }
+        expireDueProjects();
+        planTimers();
+    }
 
+    /**
+     * 分批结束已到期的项目, 每批一个短事务, 直到某一批不满
+     * (synchronized: 定时器和兜底任务可能同时触发, 本节点内串行执行即可)
+     */
+    public synchronized void expireDueProjects() {
         LocalDateTime now = LocalDateTime.now();
-        int updatedCount = 0;
-
-        for (Project project : activeProjects) {
-            // 2. 检查项目是否到期 (endTime 是否早于 now)
-            if (project.getEndTime() != null && project.getEndTime().isBefore(now)) {
-
-                // 3. 项目已到期, 判断成功或失败
-                Integer newStatus;
-                String notificationType;
-                String notificationContent;
-
-                // 比较 BigDecimal: currentAmount >= goalAmount
-                if (project.getCurrentAmount().compareTo(project.getGoalAmount()) >= 0) {
-                    // --- 成功 ---
-                    newStatus = STATUS_SUCCESSFUL;
-                    notificationType = "PROJECT_FUNDED";
-                    notificationContent = String.format("太棒了！您的项目 '%s' 已成功达成众筹目标！", project.getTitle());
-                } else {
-                    // --- 失败 ---
-                    newStatus = STATUS_FAILED;
-                    notificationType = "PROJECT_FAILED";
-                    notificationContent = String.format("很遗憾，您的项目 '%s' 未能在截止日期前达成目标。", project.getTitle());
+        int total = 0;
+        try {
+            List<Project> expired;
+            do {
+                expired = projectExpirer.expireBatch(now, batchSize);
+                for (Project project : expired) {
+                    log.info("项目 ID: {} 已到期, 状态更新为: {}", project.getId(), project.getStatus());
                 }
+                total += expired.size();
+            } while (expired.size() == batchSize);
+        } catch (Exception e) {
+            log.warn("定时任务：结束到期项目失败: {}", e.getMessage());
+        }
 
-                // 4. 更新数据库中的项目状态
-                project.setStatus(newStatus);
-                projectMapper.updateProject(project); // (使用现有的 updateProject 更新状态)
-                updatedCount++;
-                log.info("项目 ID: {} 已到期, 状态更新为: {}", project.getId(), newStatus);
+        if (total > 0) {
+            log.info("定时任务：共更新了 {} 个到期项目。", total);
+        }
+    }
 
-                // 5. 发送通知给项目发起者
-                notificationService.sendSystemNotification(
-                        project.getCreatorId(),
-                        notificationType,
-                        notificationContent,
-                        "/project/" + project.getId() // 统一跳转到项目详情页
-                );
-            }
+    /**
+     * 为在时间窗口内截止的项目设置一次性定时器, 在截止时间触发结束
+     * (只查询 id 和 end_time; 截止时间被修改的项目会被兜底任务处理)
+     */
+    private void planTimers() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Project> upcoming;
+        try {
+            upcoming = projectMapper.findActiveEndingBetween(now, now.plus(Duration.ofMillis(timerHorizon)));
+        } catch (Exception e) {
+            log.warn("定时任务：查询即将到期的项目失败: {}", e.getMessage());
+            return;
         }
 
-        if (updatedCount > 0) {
-            log.info("定时任务：共更新了 {} 个到期项目。", updatedCount);
-        } else {
-            log.info("定时任务：没有项目到期，任务结束。");
+        for (Project project : upcoming) {
+            timers.computeIfAbsent(project.getId(), id -> taskScheduler.schedule(() -> {
+                timers.remove(id);
+                expireDueProjects();
+            }, project.getEndTime().atZone(ZoneId.systemDefault()).toInstant()));
         }
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,12 @@
 package com.pot.sparkhub.security;
 
+import com.pot.sparkhub.entity.User;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -29,9 +30,18 @@ public class JwtFilter extends OncePerRequestFilter {
     @Autowired
     private StringRedisTemplate redisTemplate; // 注入 RedisTemplate
 
+    @Autowired
+    private PrincipalCache principalCache; // 已认证用户的本地缓存
+
+    @Autowired
+    private TokenDenylist tokenDenylist; // 无状态模式的撤销名单
+
     // 定义 Redis Key 的前缀
     public static final String JWT_REDIS_KEY_PREFIX = "sparkhub:jwt:";
 
+    // Refresh Token 的 Redis Key 前缀 (值为当前有效的 Refresh Token 的 jti)
+    public static final String REFRESH_REDIS_KEY_PREFIX = "sparkhub:jwt:refresh:";
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -39,12 +49,19 @@ public class JwtFilter extends OncePerRequestFilter {
         final String authHeader = request.getHeader("Authorization");
         String username = null;
         String jwt = null;
+        Claims claims = null;
 
         // 1. 检查 Header 是否存在, 并且是否以 "Bearer " 开头
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             jwt = authHeader.substring(7); // 截取 "Bearer " 后的 Token
             try {
-                username = jwtUtil.getUsernameFromToken(jwt);
+                // 只解析一次: 同时校验签名和过期时间
+                claims = jwtUtil.parseClaims(jwt);
+                if (jwtUtil.isRefreshToken(claims)) {
+                    logger.warn("Refresh Token 不能用于访问接口");
+                } else {
+                    username = claims.getSubject();
+                }
             } catch (ExpiredJwtException e) {
                 logger.warn("JWT Token 已过期");
             } catch (Exception e) {
@@ -55,32 +72,46 @@ public class JwtFilter extends OncePerRequestFilter {
         // 2. 检查用户名是否获取成功, 并且 SecurityContext 中目前没有认证信息
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            // 3. 【核心】检查 Redis 中是否存在该 Token (实现登出和T人)
-            String redisKey = JWT_REDIS_KEY_PREFIX + username;
-            String tokenInRedis = redisTemplate.opsForValue().get(redisKey);
+            User user = null;
 
-            if (tokenInRedis != null && tokenInRedis.equals(jwt)) {
-                // 4. Redis 中存在此 Token, 开始验证
-                UserDetails userDetails = this.userDetailsServiceImpl.loadUserByUsername(username);
+            if (jwtUtil.isStateless()) {
+                // 3A. 无状态模式: 直接使用 Token 中的用户信息, 只检查撤销名单 (通常不需要任何 I/O)
+                if (!tokenDenylist.isRevoked(username, jwtUtil.getIssuedAtMillis(claims))) {
+                    user = jwtUtil.toPrincipal(claims);
+                } else {
+                    logger.warn("JWT Token 已被撤销, 认证失败");
+                }
+            } else if ((user = principalCache.get(username, jwt)) == null) {
+                // 3B. 有状态模式: 先查本地缓存 (命中时不访问 Redis 和数据库), 未命中时检查 Redis
+                long stamp = principalCache.stamp();
+
+                // 3.1 【核心】检查 Redis 中是否存在该 Token (实现登出和T人)
+                String redisKey = JWT_REDIS_KEY_PREFIX + username;
+                String tokenInRedis = redisTemplate.opsForValue().get(redisKey);
+
+                if (tokenInRedis != null && tokenInRedis.equals(jwt)) {
+                    // 3.2 Redis 中存在此 Token, 加载用户 (含角色) 并缓存
+                    user = (User) this.userDetailsServiceImpl.loadUserByUsername(username);
+                    principalCache.put(username, jwt, user, stamp);
+                } else {
+                    // 如果 Redis 中不存在 (可能已登出或被T), 即使 Token 签名正确也不予通过
+                    logger.warn("JWT Token 在 Redis 中不存在或不匹配, 认证失败");
+                }
+            }
 
-                // 5. 验证 Token 是否有效 (用户名匹配且未过期)
-                if (jwtUtil.validateToken(jwt, userDetails)) {
-                    // 6. 创建认证凭证
-                    UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
+            if (user != null) {
+                // 4. 创建认证凭证
+                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
+                        user, null, user.getAuthorities());
 
-                    authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                    // 7. 将凭证存入 SecurityContext, 标记为已认证
-                    SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-                }
-            } else {
-                // 如果 Redis 中不存在 (可能已登出或被T), 即使 Token 签名正确也不予通过
-                logger.warn("JWT Token 在 Redis 中不存在或不匹配, 认证失败");
+                // 5. 将凭证存入 SecurityContext, 标记为已认证
+                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
             }
         }
 
-        // 8. 放行请求, 进入下一个过滤器
+        // 6. 放行请求, 进入下一个过滤器
         filterChain.doFilter(request, response);
     }
 }
\ No newline at end of file
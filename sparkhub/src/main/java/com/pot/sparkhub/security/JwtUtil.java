@@ -1,19 +1,24 @@
 package com.pot.sparkhub.security;
 
+import com.pot.sparkhub.entity.Role;
 import com.pot.sparkhub.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -28,10 +33,47 @@ public class JwtUtil {
     @Value("${sparkhub.jwt.expiration}")
     private Long expiration;
 
-    // 获取密钥
-    private SecretKey getSigningKey() {
+    // 无状态模式: 直接从 Claims 构建 User, 不查询 Redis 和数据库 (默认关闭)
+    @Value("${sparkhub.jwt.stateless:false}")
+    private boolean stateless;
+
+    // 无状态模式下访问 Token 的有效期 (毫秒), 到期后用 Refresh Token 换取
+    @Value("${sparkhub.jwt.access-expiration:900000}")
+    private Long accessExpiration;
+
+    // Refresh Token 的有效期 (毫秒)
+    @Value("${sparkhub.jwt.refresh-expiration:604800000}")
+    private Long refreshExpiration;
+
+    // 自定义 Claim
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_AVATAR = "avatar";
+    private static final String CLAIM_TYPE = "typ";
+    // 签发时间 (毫秒): 标准的 "iat" 精度只到秒, 与同一秒内的撤销无法比较先后
+    private static final String CLAIM_ISSUED_AT_MS = "iat_ms";
+    private static final String TYPE_REFRESH = "refresh";
+
+    // 密钥和解析器只创建一次 (两者都是线程安全的)
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
         // 使用 Keys.hmacShaKeyFor 来生成一个安全的密钥
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+    }
+
+    /**
+     * 解析并校验 Token (签名 + 过期时间), 每个请求只需调用一次
+     * @return Token 中的所有 Claims
+     * @throws io.jsonwebtoken.ExpiredJwtException Token 已过期
+     * @throws io.jsonwebtoken.JwtException        Token 无效
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     // 1. 从 Token 中提取用户名
@@ -52,59 +94,105 @@ public class JwtUtil {
 
     // 4. 提取 Token 中的所有 Claims
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parseClaims(token);
     }
 
-    // 5. 检查 Token 是否过期
-    private Boolean isTokenExpired(String token) {
-        final Date expirationDate = getExpirationDateFromToken(token);
-        return expirationDate.before(new Date());
-    }
-
-    // 6. 为指定用户生成 Token
+    // 5. 为指定用户生成 (访问) Token
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
 
-        // 6.1. 添加 "roles" (角色)
+        // 5.1. 添加 "roles" (角色)
         // (将 GrantedAuthority 转换为简单的字符串列表, e.g., "ROLE_USER")
         List<String> roles = userDetails.getAuthorities().stream()
                 .map(authority -> authority.getAuthority())
                 .collect(Collectors.toList());
         claims.put("roles", roles);
 
-        // 6.2. 添加 "email" (邮箱)
+        // 5.2. 添加 "email" (邮箱), 以及无状态模式构建 User 所需的 "uid" 和 "avatar"
         // (UserDetailsServiceImpl 确保了 userDetails 是一个 User 实例)
         if (userDetails instanceof User) {
             User user = (User) userDetails;
             claims.put("email", user.getEmail());
+            claims.put(CLAIM_USER_ID, user.getId());
+            claims.put(CLAIM_AVATAR, user.getAvatar());
         }
 
-        // 6.3. "sub" (用户名) 会在 doGenerateToken 中设置
-        return doGenerateToken(claims, userDetails.getUsername());
+        // 5.3. "sub" (用户名) 会在 doGenerateToken 中设置
+        return doGenerateToken(claims, userDetails.getUsername(), stateless ? accessExpiration : expiration);
     }
 
-    // 7. 生成 Token 的核心逻辑
-    private String doGenerateToken(Map<String, Object> claims, String subject) {
+    // 6. 生成 Refresh Token (只用于换取新的访问 Token, 不能访问接口)
+    public String generateRefreshToken(String username) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_TYPE, TYPE_REFRESH);
+        return doGenerateToken(claims, username, refreshExpiration);
+    }
+
+    // 7. 生成 Token 的核心逻辑 (每个 Token 带唯一的 jti)
+    private String doGenerateToken(Map<String, Object> claims, String subject, long ttl) {
         final Date createdDate = new Date();
-        final Date expirationDate = new Date(createdDate.getTime() + expiration);
+        final Date expirationDate = new Date(createdDate.getTime() + ttl);
 
         return Jwts.builder()
                 .claims(claims)
+                .claim(CLAIM_ISSUED_AT_MS, createdDate.getTime())
+                .id(UUID.randomUUID().toString())
                 .subject(subject) // subject 存用户名
                 .issuedAt(createdDate)
                 .expiration(expirationDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
     // 8. 验证 Token 是否有效
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = getUsernameFromToken(token);
+        final Claims claims = getAllClaimsFromToken(token);
         // 检查 Token 中的用户名是否与 UserDetails 匹配, 并且 Token 未过期
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return (claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date()));
+    }
+
+    // 9. 是否为 Refresh Token
+    public boolean isRefreshToken(Claims claims) {
+        return TYPE_REFRESH.equals(claims.get(CLAIM_TYPE, String.class));
+    }
+
+    // 10. 无状态模式: 直接从已校验的 Claims 构建 User (不查询 Redis 和数据库; 不含密码)
+    //     (旧版本签发的 Token 没有 "uid", 返回 null, 需要重新登录)
+    @SuppressWarnings("unchecked")
+    public User toPrincipal(Claims claims) {
+        if (claims.get(CLAIM_USER_ID) == null || claims.get("roles") == null) {
+            return null;
+        }
+        User user = new User();
+        user.setId(((Number) claims.get(CLAIM_USER_ID)).longValue());
+        user.setUsername(claims.getSubject());
+        user.setEmail(claims.get("email", String.class));
+        user.setAvatar(claims.get(CLAIM_AVATAR, String.class));
+        List<Role> roles = new ArrayList<>();
+        for (String name : (List<String>) claims.get("roles")) {
+            Role role = new Role();
+            role.setName(name);
+            roles.add(role);
+        }
+        user.setRoles(roles);
+        return user;
+    }
+
+    // 11. 签发时间 (毫秒; 旧版本签发的 Token 没有 "iat_ms", 使用精度为秒的 "iat")
+    public long getIssuedAtMillis(Claims claims) {
+        Object millis = claims.get(CLAIM_ISSUED_AT_MS);
+        return millis instanceof Number number ? number.longValue() : claims.getIssuedAt().getTime();
+    }
+
+    public boolean isStateless() {
+        return stateless;
+    }
+
+    public long getAccessExpiration() {
+        return accessExpiration;
+    }
+
+    public long getRefreshExpiration() {
+        return refreshExpiration;
     }
-}
\ No newline at end of file
+}
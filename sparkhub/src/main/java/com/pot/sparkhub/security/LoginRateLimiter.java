@@ -0,0 +1,161 @@
+package com.pot.sparkhub.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pot.sparkhub.common.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 登录限流: 每个 IP、每个用户名各一个令牌桶, 在校验密码 (BCrypt) 之前检查
+ *
+ * 1. 令牌桶用 "理论到达时间" 表示 (GCRA): 每个桶只是一个 AtomicLong, 取令牌是一次 CAS, 不加锁
+ * 2. IP 桶每次登录尝试都取令牌; 用户名桶只在密码校验失败时取令牌 (登录前只检查),
+ *    否则他人用同一个用户名频繁登录就能把该账号的正常登录也挡在外面
+ * 3. 桶保存在 Caffeine (分段的并发哈希表) 中, 一段时间未使用的桶自动回收, 总数有上限
+ * 4. 只在本节点内计数 (集群总速率 = 节点数 x 单节点速率)
+ */
+@Component
+public class LoginRateLimiter {
+
+    @Value("${sparkhub.security.login-rate.ip-burst:20}")
+    private int ipBurst;
+
+    // 每个 IP 每分钟补充的令牌数
+    @Value("${sparkhub.security.login-rate.ip-per-minute:30}")
+    private int ipPerMinute;
+
+    @Value("${sparkhub.security.login-rate.username-burst:5}")
+    private int usernameBurst;
+
+    // 每个用户名每分钟补充的令牌数
+    @Value("${sparkhub.security.login-rate.username-per-minute:10}")
+    private int usernamePerMinute;
+
+    // 本地最多保留的桶数
+    @Value("${sparkhub.security.login-rate.maximum-size:100000}")
+    private long maximumSize;
+
+    // 时钟 (纳秒), 测试时替换
+    private LongSupplier clock = System::nanoTime;
+
+    private Limit ipLimit;
+    private Limit usernameLimit;
+
+    private final LongAdder ipRejected = new LongAdder();
+    private final LongAdder usernameRejected = new LongAdder();
+
+    /**
+     * 一类令牌桶: 补充一个令牌的间隔 + 允许的突发量
+     */
+    private static final class Limit {
+
+        private final long interval;  // 纳秒
+        private final long tolerance; // 纳秒 (= interval * (burst - 1))
+        private final Cache<String, AtomicLong> buckets;
+        private final LongSupplier clock;
+
+        Limit(int burst, int perMinute, long maximumSize, LongSupplier clock) {
+            this.clock = clock;
+            interval = TimeUnit.MINUTES.toNanos(1) / Math.max(perMinute, 1);
+            tolerance = interval * (Math.max(burst, 1) - 1);
+            // 桶在 (突发量 x 间隔) 之后就恢复为满, 不需要再保留
+            buckets = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterAccess(Duration.ofNanos(interval + tolerance))
+                    .ticker(clock::getAsLong)
+                    .build();
+        }
+
+        /**
+         * 检查是否还有令牌 (不取)
+         * @return 0 = 有; 否则为需要等待的纳秒数
+         */
+        long check(String key) {
+            AtomicLong tat = buckets.getIfPresent(key);
+            return tat == null ? 0 : Math.max(0, tat.get() - clock.getAsLong() - tolerance);
+        }
+
+        /**
+         * 取一个令牌
+         * @return 0 = 成功; 否则为需要等待的纳秒数
+         */
+        long tryAcquire(String key) {
+            long now = clock.getAsLong();
+            AtomicLong tat = buckets.get(key, k -> new AtomicLong(now));
+            while (true) {
+                long current = tat.get();
+                long base = current - now < 0 ? now : current;
+                long wait = base - now - tolerance;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (tat.compareAndSet(current, base + interval)) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        ipLimit = new Limit(ipBurst, ipPerMinute, maximumSize, clock);
+        usernameLimit = new Limit(usernameBurst, usernamePerMinute, maximumSize, clock);
+    }
+
+    /**
+     * 登录前检查 (超出速率时抛出 {@link TooManyRequestsException})
+     */
+    public void acquire(String clientIp, String username) {
+        // 1. 先按 IP (撞库攻击通常来自少量 IP, 尝试大量用户名)
+        long wait = ipLimit.tryAcquire(clientIp == null ? "" : clientIp);
+        if (wait > 0) {
+            ipRejected.increment();
+            throw new TooManyRequestsException("登录尝试过于频繁, 请稍后再试", toSeconds(wait));
+        }
+        // 2. 再按用户名 (针对单个账号的暴力破解; 只检查, 失败时才在 recordFailure 中取令牌)
+        wait = usernameLimit.check(usernameKey(username));
+        if (wait > 0) {
+            usernameRejected.increment();
+            throw new TooManyRequestsException("该账号登录尝试过于频繁, 请稍后再试", toSeconds(wait));
+        }
+    }
+
+    /**
+     * 密码校验失败后调用: 从该用户名的桶中取一个令牌
+     * (并发的失败尝试可能同时通过检查, 超出的部分会推迟之后的尝试)
+     */
+    public void recordFailure(String username) {
+        usernameLimit.tryAcquire(usernameKey(username));
+    }
+
+    /**
+     * 统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ipBuckets", ipLimit.buckets.estimatedSize());
+        stats.put("usernameBuckets", usernameLimit.buckets.estimatedSize());
+        stats.put("ipRejected", ipRejected.sum());
+        stats.put("usernameRejected", usernameRejected.sum());
+        return stats;
+    }
+
+    private static String usernameKey(String username) {
+        return username == null ? "" : username.toLowerCase(Locale.ROOT);
+    }
+
+    private static long toSeconds(long nanos) {
+        return Math.max(1, (nanos + 999_999_999) / 1_000_000_000);
+    }
+}
@@ -0,0 +1,134 @@
+package com.pot.sparkhub.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pot.sparkhub.entity.User;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已认证用户的本地缓存 (用户名 -> 已通过 Redis 校验的 Token + User)
+ *
+ * 1. 命中时 JwtFilter 不再访问 Redis 和数据库 (Token 相同才算命中, 新登录的 Token 不会命中旧条目)
+ * 2. 登录、登出、修改角色/邮箱/密码/头像时清除: 本节点立即清除, 事务提交后本节点再清除一次
+ *    (提交前读到旧数据的请求可能已重新放入缓存), 并通过 Redis 频道 {@link #EVICT_CHANNEL} 通知所有节点清除
+ * 3. 加载期间发生过清除时, 本次加载结果不放入缓存 (可能是清除前的旧数据)
+ * 4. 条目写入后很快过期 (兜底: 丢失清除消息的节点)
+ */
+@Component
+public class PrincipalCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PrincipalCache.class);
+
+    // 集群内广播清除的频道 (消息内容为用户名)
+    public static final String EVICT_CHANNEL = "sparkhub:auth:evict";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${sparkhub.security.principal-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    // 条目的最长保留时间 (毫秒)
+    @Value("${sparkhub.security.principal-cache.expire-after-write:60000}")
+    private long expireAfterWrite;
+
+    private Cache<String, Entry> principals;
+
+    // 清除计数: 加载前后不一致说明加载期间有清除
+    private final AtomicLong evictions = new AtomicLong();
+
+    private record Entry(String token, User user) {
+    }
+
+    @PostConstruct
+    public void init() {
+        principals = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWrite))
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(EVICT_CHANNEL));
+    }
+
+    /**
+     * 查找已认证的用户
+     * @return 该用户名以这个 Token 缓存的 User; 未命中返回 null
+     */
+    public User get(String username, String token) {
+        Entry entry = principals.getIfPresent(username);
+        return entry != null && entry.token().equals(token) ? entry.user() : null;
+    }
+
+    /**
+     * 开始加载前取得的标记, 传给 {@link #put}
+     */
+    public long stamp() {
+        return evictions.get();
+    }
+
+    /**
+     * 缓存加载结果 (stamp 之后发生过清除时不缓存)
+     */
+    public void put(String username, String token, User user, long stamp) {
+        if (evictions.get() == stamp) {
+            principals.put(username, new Entry(token, user));
+        }
+    }
+
+    /**
+     * 清除一个用户 (本节点立即清除; 事务提交后本节点再清除一次, 并广播给所有节点)
+     */
+    public void evict(String username) {
+        evictLocal(username);
+        Runnable broadcast = () -> {
+            evictLocal(username);
+            try {
+                redisTemplate.convertAndSend(EVICT_CHANNEL, username);
+            } catch (Exception e) {
+                // 其他节点的条目在过期后失效
+                log.warn("认证缓存清除消息广播失败: {}", e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    broadcast.run();
+                }
+            });
+        } else {
+            broadcast.run();
+        }
+    }
+
+    /**
+     * 收到广播 (包括本节点发出的): 清除本节点的条目
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        evictLocal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void evictLocal(String username) {
+        evictions.incrementAndGet();
+        principals.invalidate(username);
+    }
+}
@@ -0,0 +1,228 @@
+package com.pot.sparkhub.security;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无状态 JWT 模式的撤销名单
+ *
+ * 1. 撤销 (登出、修改密码/邮箱/角色/头像) 时, 在 Redis 中记录该用户的撤销时间 (有效期 = 访问 Token 的有效期),
+ *    此前签发的访问 Token 全部失效
+ * 2. 每个节点在内存中维护一个布隆过滤器 (被撤销的用户名), 通过 Redis 频道 {@link #REVOKE_CHANNEL} 同步;
+ *    过滤器判断 "不在名单中" 时 (绝大多数请求) 不需要任何 I/O, 判断 "可能在" 时再查 Redis 确认
+ * 3. 布隆过滤器不能删除, 定期从 Redis 重建 (丢弃已过期的撤销记录, 同时补上丢失的同步消息)
+ */
+@Component
+public class TokenDenylist implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenDenylist.class);
+
+    // 集群内同步撤销的频道 (消息内容为用户名)
+    public static final String REVOKE_CHANNEL = "sparkhub:auth:revoke";
+
+    // 撤销记录: 用户名 -> 撤销时间 (毫秒; 与 Token 中毫秒精度的签发时间比较)
+    private static final String KEY_PREFIX = "sparkhub:jwt:revoked:";
+
+    // 写入撤销记录的最多尝试次数
+    private static final int REVOKE_ATTEMPTS = 3;
+
+    // 布隆过滤器的误判率
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    // 布隆过滤器的预期容量 (有效期内被撤销的用户数)
+    @Value("${sparkhub.jwt.denylist.expected-insertions:100000}")
+    private int expectedInsertions;
+
+    private volatile BloomFilter filter;
+
+    // 重建期间收到的撤销 (重建完成后补入新的过滤器)
+    private volatile Set<String> rebuildReceived;
+
+    @PostConstruct
+    public void init() {
+        filter = new BloomFilter(expectedInsertions, FALSE_POSITIVE_RATE);
+        listenerContainer.addMessageListener(this, new ChannelTopic(REVOKE_CHANNEL));
+    }
+
+    /**
+     * 撤销一个用户此前签发的所有访问 Token (只在无状态模式下生效)
+     * 撤销记录写入失败时重试, 仍失败则抛出异常, 由调用方的操作 (登出、修改密码等) 一起失败
+     */
+    public void revoke(String username) {
+        if (!jwtUtil.isStateless()) {
+            return; // 有状态模式下由 Redis 中的 Token 记录控制
+        }
+        long revokedAt = System.currentTimeMillis();
+        add(username);
+
+        // 1. 写入撤销记录 (幂等, 可以重试)
+        for (int attempt = 1; ; attempt++) {
+            try {
+                redisTemplate.opsForValue().set(KEY_PREFIX + username, String.valueOf(revokedAt),
+                        Duration.ofMillis(jwtUtil.getAccessExpiration()));
+                break;
+            } catch (Exception e) {
+                log.warn("撤销 Token 失败 (用户: {}, 第 {} 次): {}", username, attempt, e.getMessage());
+                if (attempt >= REVOKE_ATTEMPTS) {
+                    throw new RuntimeException("撤销登录状态失败, 请稍后重试");
+                }
+            }
+        }
+
+        // 2. 通知其他节点 (失败时由定时重建补上)
+        try {
+            redisTemplate.convertAndSend(REVOKE_CHANNEL, username);
+        } catch (Exception e) {
+            log.warn("撤销 Token 同步消息发送失败 (用户: {}): {}", username, e.getMessage());
+        }
+    }
+
+    /**
+     * 访问 Token 是否已被撤销 (撤销时刻及之前签发的都算; 同一毫秒内无法区分先后, 按已撤销处理)
+     * @param issuedAtMillis Token 的签发时间 (毫秒, 见 {@link JwtUtil#getIssuedAtMillis})
+     */
+    public boolean isRevoked(String username, long issuedAtMillis) {
+        if (!filter.mightContain(username)) {
+            return false;
+        }
+        try {
+            String revokedAt = redisTemplate.opsForValue().get(KEY_PREFIX + username);
+            return revokedAt != null && issuedAtMillis <= Long.parseLong(revokedAt);
+        } catch (Exception e) {
+            // 无法确认时按已撤销处理 (客户端可以用 Refresh Token 重新获取)
+            log.warn("查询 Token 撤销记录失败 (用户: {}): {}", username, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 收到同步消息 (包括本节点发出的)
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        add(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 定时任务：从 Redis 重建布隆过滤器
+     * "fixedDelay = 60000" = 上一次执行结束后 1 分钟再执行
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void rebuild() {
+        if (!jwtUtil.isStateless()) {
+            return;
+        }
+        Set<String> received = ConcurrentHashMap.newKeySet();
+        rebuildReceived = received;
+        List<String> usernames = new ArrayList<>();
+        try (Cursor<String> keys = redisTemplate.scan(ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(1000).build())) {
+            keys.forEachRemaining(key -> usernames.add(key.substring(KEY_PREFIX.length())));
+        } catch (Exception e) {
+            rebuildReceived = null;
+            log.warn("定时任务：重建 Token 撤销名单失败: {}", e.getMessage());
+            return;
+        }
+
+        // 撤销的用户超出预期容量时, 按实际数量扩容 (保持误判率)
+        BloomFilter next = new BloomFilter(Math.max(expectedInsertions, usernames.size() * 2), FALSE_POSITIVE_RATE);
+        usernames.forEach(next::put);
+        received.forEach(next::put);
+        filter = next;
+        received.forEach(next::put); // 替换前的瞬间写入旧过滤器的撤销
+        rebuildReceived = null;
+    }
+
+    private void add(String username) {
+        filter.put(username);
+        Set<String> received = rebuildReceived;
+        if (received != null) {
+            received.add(username);
+        }
+    }
+
+    /**
+     * 布隆过滤器 (线程安全: 只会置位, 不会清除)
+     */
+    private static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final int bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedInsertions, double falsePositiveRate) {
+            int n = Math.max(expectedInsertions, 1);
+            long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            bitCount = (int) Math.min(Math.max(m, 64), Integer.MAX_VALUE - 63);
+            hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+            bits = new AtomicLongArray((bitCount + 63) >>> 6);
+        }
+
+        void put(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                int index = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+                long mask = 1L << index;
+                bits.getAndAccumulate(index >>> 6, mask, (word, m) -> word | m);
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash = hash(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                int index = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+                if ((bits.get(index >>> 6) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 64 位 FNV-1a + 混合 (高低 32 位分别作为两个独立的哈希)
+         */
+        private static long hash(String value) {
+            long h = 0xcbf29ce484222325L;
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                h ^= b;
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
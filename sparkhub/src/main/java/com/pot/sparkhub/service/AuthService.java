@@ -15,13 +15,21 @@ public interface AuthService {
 
     /**
      * 用户登录
-     * @param request 登录请求
+     * @param request  登录请求
+     * @param clientIp 客户端 IP (用于登录限流)
      * @return 包含 JWT 的 Map
      */
-    Map<String, Object> login(LoginRequest request);
+    Map<String, Object> login(LoginRequest request, String clientIp);
 
     /**
      * 用户登出
      */
     void logout();
-}
\ No newline at end of file
+
+    /**
+     * 用 Refresh Token 换取新的访问 Token (Refresh Token 同时轮换, 只能使用一次)
+     * @param refreshToken 登录或上一次刷新时返回的 Refresh Token
+     * @return 新的 token, refreshToken 和用户信息
+     */
+    Map<String, Object> refresh(String refreshToken);
+}
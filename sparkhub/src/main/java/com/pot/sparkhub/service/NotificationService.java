@@ -1,16 +1,26 @@
 package com.pot.sparkhub.service;
 
 import com.github.pagehelper.PageInfo;
+import com.pot.sparkhub.common.CursorPage;
 import com.pot.sparkhub.dto.NotificationDTO;
 
+import java.util.List;
+
 public interface NotificationService {
 
     // --- 写入方法 ---
     void sendSystemNotification(Long recipientId, String type, String content, String linkUrl);
     void sendUserNotification(Long recipientId, String type, String content, String linkUrl, Long senderId);
+    // 可聚合的互动通知: 同一目标在时间窗口内的未读通知合并为一条 (aggregateContent 中的 "{count}" 替换为次数)
+    void sendAggregatedUserNotification(Long recipientId, String type, String target, String content,
+                                        String aggregateContent, String linkUrl, Long senderId);
+    // 向大量用户发送同一条系统通知 (异步, 分批多行插入)
+    void sendSystemNotificationToAll(List<Long> recipientIds, String type, String content, String linkUrl);
 
     // --- 读取方法 ---
     PageInfo<NotificationDTO> getNotificationsForUser(Long recipientId, String filter, int pageNum, int pageSize);
+    // 游标分页 (不做 COUNT, 翻页深度不影响性能)
+    CursorPage<NotificationDTO> getNotificationsForUserAfter(Long recipientId, String filter, String after, int pageSize);
     long getUnreadCount(Long recipientId);
 
     // --- 更新方法 ---
@@ -1,5 +1,6 @@
 package com.pot.sparkhub.service;
 
+import com.pot.sparkhub.common.CursorPage;
 import com.pot.sparkhub.dto.CommentCreateDTO;
 import com.pot.sparkhub.dto.CommentDetailDTO;
 import java.util.List;
@@ -12,6 +13,18 @@ public interface ProjectCommentService {
      */
     List<CommentDetailDTO> getCommentsByProject(Long projectId, String sortBy);
 
+    /**
+     * [公开] 游标分页获取一个项目的顶级评论 (附带回复数, 不含回复)
+     * @param sortBy 排序方式 ("time" 或 "hotness")
+     * @param after  上一页的 nextCursor (第一页为空串)
+     */
+    CursorPage<CommentDetailDTO> getTopLevelComments(Long projectId, String sortBy, String after, int pageSize);
+
+    /**
+     * [公开] 游标分页获取一条评论的直接回复 (按时间正序, 附带各自的回复数)
+     */
+    CursorPage<CommentDetailDTO> getReplies(Long projectId, Long commentId, String after, int pageSize);
+
     /**
      * [需登录] 创建一条新评论
      */
@@ -1,6 +1,8 @@
 package com.pot.sparkhub.service;
 
 import com.github.pagehelper.PageInfo;
+import com.pot.sparkhub.common.CursorPage;
+import com.pot.sparkhub.common.ProjectSort;
 import com.pot.sparkhub.dto.ProjectCreateDTO;
 import com.pot.sparkhub.dto.ProjectDetailDTO;
 import com.pot.sparkhub.dto.ProjectSummaryDTO;
@@ -13,11 +15,32 @@ public interface ProjectService {
 
     /**
      * 分页获取公开的项目列表 (只显示 "众筹中" 的)
+     * @param categoryId 按分类筛选 (null 为全部分类)
+     * @param sort       排序方式
+     * @param pageNum    页码
+     * @param pageSize   每页数量
+     * @return 分页结果
+     */
+    PageInfo<ProjectSummaryDTO> getPublicProjects(Long categoryId, ProjectSort sort, int pageNum, int pageSize);
+
+    /**
+     * 游标分页获取公开的项目列表 (不做 COUNT, 深翻页与第一页开销相同)
+     * @param categoryId 按分类筛选 (null 为全部分类)
+     * @param sort       排序方式
+     * @param after      上一页返回的 nextCursor (第一页传 null 或空串)
+     * @param pageSize   每页数量
+     * @return 游标分页结果
+     */
+    CursorPage<ProjectSummaryDTO> getPublicProjectsAfter(Long categoryId, ProjectSort sort, String after, int pageSize);
+
+    /**
+     * 全文搜索公开的项目 (标题 + 详情, 按相关度排序)
+     * @param keyword  搜索关键词
      * @param pageNum  页码
      * @param pageSize 每页数量
      * @return 分页结果
      */
-    PageInfo<ProjectSummaryDTO> getPublicProjects(int pageNum, int pageSize);
+    PageInfo<ProjectSummaryDTO> searchProjects(String keyword, int pageNum, int pageSize);
 
     /**
      * 获取项目详情
@@ -53,6 +76,11 @@ public interface ProjectService {
      */
     PageInfo<ProjectSummaryDTO> getProjectsForAdmin(int pageNum, int pageSize, Integer status);
 
+    /**
+     * [Admin] 游标分页获取所有项目 (用于审核)
+     */
+    CursorPage<ProjectSummaryDTO> getProjectsForAdminAfter(String after, int pageSize, Integer status);
+
     /**
      * [Admin] 审核项目
      */
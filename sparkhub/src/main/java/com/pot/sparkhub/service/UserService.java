@@ -1,6 +1,7 @@
 package com.pot.sparkhub.service;
 
 import com.github.pagehelper.PageInfo;
+import com.pot.sparkhub.common.CursorPage;
 import com.pot.sparkhub.dto.UpdateEmailDTO;
 import com.pot.sparkhub.dto.UpdatePasswordDTO;
 import com.pot.sparkhub.dto.UserDTO;
@@ -13,6 +14,14 @@ public interface UserService {
      */
     PageInfo<User> getAllUsers(int pageNum, int pageSize);
 
+    /**
+     * [Admin] 搜索用户 (游标分页, 按 id 升序, 不做 COUNT 查询)
+     * @param q     用户名或邮箱前缀 (可选)
+     * @param role  角色名, e.g. "ROLE_CREATOR" (可选)
+     * @param after 上一页返回的 nextCursor (第一页为空)
+     */
+    CursorPage<User> searchUsers(String q, String role, String after, int pageSize);
+
     /**
      * [Admin] 管理用户角色 (添加或移除)
      * @param userId 目标用户ID
@@ -1,28 +1,36 @@
 package com.pot.sparkhub.service.impl;
 
+import com.pot.sparkhub.cache.RoleIdCache;
 import com.pot.sparkhub.dto.LoginRequest;
 import com.pot.sparkhub.dto.RegisterRequest;
 import com.pot.sparkhub.dto.UserDTO;
 import com.pot.sparkhub.entity.User;
-import com.pot.sparkhub.mapper.UserMapper;
 import com.pot.sparkhub.security.JwtFilter;
 import com.pot.sparkhub.security.JwtUtil;
+import com.pot.sparkhub.security.LoginRateLimiter;
+import com.pot.sparkhub.security.PrincipalCache;
+import com.pot.sparkhub.security.TokenDenylist;
+import io.jsonwebtoken.Claims;
 import com.pot.sparkhub.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -33,9 +41,6 @@ public class AuthServiceImpl implements AuthService {
     @Autowired
     private AuthenticationManager authenticationManager;
 
-    @Autowired
-    private UserMapper userMapper;
-
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -45,48 +50,78 @@ public class AuthServiceImpl implements AuthService {
     @Autowired
     private StringRedisTemplate redisTemplate;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    @Autowired
+    private UserDetailsService userDetailsServiceImpl;
+
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
+    @Autowired
+    private RoleIdCache roleIdCache;
+
+    @Autowired
+    private UserAccountWriter userAccountWriter;
+
     @Value("${sparkhub.jwt.expiration}") // 注入过期时间
     private Long expiration;
 
+    /**
+     * 轮换 Refresh Token: 当前值仍是旧 jti 时才替换 (同一个 Refresh Token 只能使用一次)
+     */
+    private static final DefaultRedisScript<Long> ROTATE_REFRESH_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) " +
+            "return 1",
+            Long.class);
+
     // 1. 注册
     @Override
-    @Transactional // 开启事务 (因为涉及多张表操作)
     public void register(RegisterRequest request) {
-        // 1. 检查用户名是否已存在
-        if (userMapper.findByUsername(request.getUsername()) != null) {
-            throw new RuntimeException("用户名已存在");
-        }
-        // 2. 检查邮箱是否已存在
-        if (userMapper.findByEmail(request.getEmail()) != null) {
-            throw new RuntimeException("邮箱已注册");
+        // 1. 默认角色 "ROLE_USER" (启动时已缓存)
+        Long roleId = roleIdCache.getRoleId("ROLE_USER");
+        if (roleId == null) {
+            throw new RuntimeException("默认角色 'ROLE_USER' 未在数据库中初始化");
         }
 
-        // 3. 创建 User 对象
+        // 2. 创建 User 对象
         User user = new User();
         user.setUsername(request.getUsername());
         user.setEmail(request.getEmail());
-        // 4. 密码加密
+        // 3. 密码加密 (在事务之外: 排队等待哈希线程时不占用数据库连接)
         user.setPassword(passwordEncoder.encode(request.getPassword()));
         user.setCreateTime(LocalDateTime.now());
 
-        // 5. 插入 user 表
-        userMapper.insert(user); // user.id 会被自动回填
-
-        // 6. 分配默认角色 "ROLE_USER"
-        Long roleId = userMapper.findRoleIdByName("ROLE_USER");
-        if (roleId == null) {
-            throw new RuntimeException("默认角色 'ROLE_USER' 未在数据库中初始化");
+        // 4. 在一个短事务中插入 user 表和 user_role 表
+        //    用户名/邮箱是否已存在由唯一索引判断, 不再事先查询
+        try {
+            userAccountWriter.insertWithRole(user, roleId);
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException(isEmailConflict(e) ? "邮箱已注册" : "用户名已存在");
         }
-        userMapper.insertUserRole(user.getId(), roleId);
     }
 
     // 2. 登录
     @Override
-    public Map<String, Object> login(LoginRequest request) {
+    public Map<String, Object> login(LoginRequest request, String clientIp) {
+        // 0. 限流 (在校验密码之前, 超出时返回 429)
+        loginRateLimiter.acquire(clientIp, request.getUsername());
+
         // 1. 使用 AuthenticationManager 进行认证 (它会调用 UserDetailsServiceImpl)
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-        );
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
+            );
+        } catch (BadCredentialsException e) {
+            loginRateLimiter.recordFailure(request.getUsername()); // 只有校验失败才计入该账号的限流
+            throw e;
+        }
 
         // 2. 认证通过, 将认证信息存入 SecurityContext
         SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -94,27 +129,24 @@ public class AuthServiceImpl implements AuthService {
         // 3. 从认证信息中获取 UserDetails
         User user = (User) authentication.getPrincipal();
 
-        // 4. 生成 JWT
+        // 4. 生成 JWT (访问 Token + Refresh Token)
         String jwt = jwtUtil.generateToken(user);
+        String refreshToken = jwtUtil.generateRefreshToken(user.getUsername());
 
         // 5. 【核心】将 JWT 存入 Redis, 并设置过期时间 (与JWT过期时间一致)
         String redisKey = JwtFilter.JWT_REDIS_KEY_PREFIX + user.getUsername();
         redisTemplate.opsForValue().set(redisKey, jwt, expiration, TimeUnit.MILLISECONDS);
+        principalCache.evict(user.getUsername()); // 旧 Token 立即失效 (包括其他节点的缓存)
 
-        // 6. 创建 UserDTO
-        UserDTO userDTO = new UserDTO();
-        userDTO.setId(user.getId());
-        userDTO.setUsername(user.getUsername());
-        userDTO.setEmail(user.getEmail());
-        userDTO.setAvatar(user.getAvatar());
-        userDTO.setRoles(user.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.toList()));
+        // 5.1 记录当前有效的 Refresh Token (新登录后旧的 Refresh Token 失效)
+        redisTemplate.opsForValue().set(JwtFilter.REFRESH_REDIS_KEY_PREFIX + user.getUsername(),
+                jwtUtil.parseClaims(refreshToken).getId(), jwtUtil.getRefreshExpiration(), TimeUnit.MILLISECONDS);
 
-        // 7. 返回 Map<String, Object>
+        // 6. 返回 Map<String, Object>
         Map<String, Object> responseMap = new HashMap<>();
         responseMap.put("token", jwt);
-        responseMap.put("user", userDTO); // <-- 将用户信息放入
+        responseMap.put("refreshToken", refreshToken);
+        responseMap.put("user", toUserDTO(user)); // <-- 将用户信息放入
 
         return responseMap;
     }
@@ -131,11 +163,71 @@ public class AuthServiceImpl implements AuthService {
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
         String username = userDetails.getUsername();
 
-        // 2. 【核心】从 Redis 中删除该用户的 JWT
+        // 2. 【核心】从 Redis 中删除该用户的 JWT 和 Refresh Token
         String redisKey = JwtFilter.JWT_REDIS_KEY_PREFIX + username;
-        redisTemplate.delete(redisKey);
+        redisTemplate.delete(List.of(redisKey, JwtFilter.REFRESH_REDIS_KEY_PREFIX + username));
+        principalCache.evict(username);
+        tokenDenylist.revoke(username); // 无状态模式: 已签发的访问 Token 立即失效
 
         // 3. 清除 SecurityContext
         SecurityContextHolder.clearContext();
     }
-}
\ No newline at end of file
+
+    // 4. 用 Refresh Token 换取新的访问 Token
+    @Override
+    public Map<String, Object> refresh(String refreshToken) {
+        // 1. 校验 Refresh Token (签名、过期时间、类型)
+        Claims claims;
+        try {
+            claims = jwtUtil.parseClaims(refreshToken);
+        } catch (Exception e) {
+            throw new RuntimeException("Refresh Token 无效或已过期");
+        }
+        if (!jwtUtil.isRefreshToken(claims)) {
+            throw new RuntimeException("Refresh Token 无效或已过期");
+        }
+        String username = claims.getSubject();
+
+        // 2. 重新加载用户 (角色、邮箱等以数据库为准)
+        User user = (User) userDetailsServiceImpl.loadUserByUsername(username);
+
+        // 3. 生成新的 Token, 并轮换 Refresh Token (已登出、重新登录或已使用过的 Refresh Token 会失败)
+        String jwt = jwtUtil.generateToken(user);
+        String newRefreshToken = jwtUtil.generateRefreshToken(username);
+        Long rotated = redisTemplate.execute(ROTATE_REFRESH_SCRIPT,
+                List.of(JwtFilter.REFRESH_REDIS_KEY_PREFIX + username),
+                claims.getId(), jwtUtil.parseClaims(newRefreshToken).getId(), String.valueOf(jwtUtil.getRefreshExpiration()));
+        if (!Long.valueOf(1).equals(rotated)) {
+            throw new RuntimeException("Refresh Token 已失效, 请重新登录");
+        }
+
+        // 4. 有状态模式: 新 Token 取代 Redis 中的旧 Token
+        redisTemplate.opsForValue().set(JwtFilter.JWT_REDIS_KEY_PREFIX + username, jwt, expiration, TimeUnit.MILLISECONDS);
+        principalCache.evict(username);
+
+        Map<String, Object> responseMap = new HashMap<>();
+        responseMap.put("token", jwt);
+        responseMap.put("refreshToken", newRefreshToken);
+        responseMap.put("user", toUserDTO(user));
+        return responseMap;
+    }
+
+    // (辅助方法) 唯一索引冲突是否来自邮箱 (uk_user_email), 否则为用户名 (uk_user_username)
+    private boolean isEmailConflict(DuplicateKeyException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.contains("uk_user_email");
+    }
+
+    // (辅助方法) 创建 UserDTO
+    private UserDTO toUserDTO(User user) {
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(user.getId());
+        userDTO.setUsername(user.getUsername());
+        userDTO.setEmail(user.getEmail());
+        userDTO.setAvatar(user.getAvatar());
+        userDTO.setRoles(user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList()));
+        return userDTO;
+    }
+}
@@ -0,0 +1,49 @@
+package com.pot.sparkhub.service.impl;
+
+import com.pot.sparkhub.entity.Backing;
+import com.pot.sparkhub.mapper.BackingMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 取消超时未支付的订单 (独立 Bean, 保证每一批都通过代理调用, 在各自的短事务中执行)
+ */
+@Component
+public class BackingCanceller {
+
+    @Autowired
+    private BackingMapper backingMapper;
+
+    @Autowired
+    private RewardStockReserver rewardStockReserver;
+
+    /**
+     * 取消一批在 cutoff 之前创建的待支付订单
+     * @param cutoff    创建时间早于此时间的订单视为超时
+     * @param batchSize 本批最多取消的数量
+     * @return 本批取消的数量
+     */
+    @Transactional
+    public int cancelExpiredBatch(LocalDateTime cutoff, int batchSize) {
+        // 1. 锁定本批订单 (走 idx_backing_status_create, 只锁这一批)
+        //    与 executePayment 的 findByIdForUpdate 互斥: 正在支付的订单要么已支付, 要么在这里被取消
+        List<Backing> expired = backingMapper.findExpiredPendingForUpdate(cutoff, batchSize);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        // 2. 批量更新状态
+        List<Long> ids = expired.stream().map(Backing::getId).toList();
+        backingMapper.cancelByIds(ids);
+
+        // 3. 归还预占的名额 (事务提交后)
+        for (Backing backing : expired) {
+            rewardStockReserver.release(backing.getId(), backing.getRewardId());
+        }
+        return expired.size();
+    }
+}
@@ -1,5 +1,6 @@
 package com.pot.sparkhub.service.impl;
 
+import com.pot.sparkhub.cache.ProjectListCache;
 import com.pot.sparkhub.dto.BackingCreateDTO;
 import com.pot.sparkhub.dto.BackingDetailDTO;
 import com.pot.sparkhub.entity.Backing;
@@ -11,14 +12,15 @@ import com.pot.sparkhub.mapper.ProjectMapper;
 import com.pot.sparkhub.mapper.RewardMapper;
 import com.pot.sparkhub.service.BackingService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
@@ -35,6 +37,19 @@ public class BackingServiceImpl implements BackingService {
     @Autowired
     private ProjectMapper projectMapper;
 
+    @Autowired
+    private ProjectDetailLoader projectDetailLoader;
+
+    @Autowired
+    private ProjectListCache projectListCache;
+
+    @Autowired
+    private RewardStockReserver rewardStockReserver;
+
+    // 待支付订单保留名额的时长 (毫秒), 超过后不能再支付
+    @Value("${sparkhub.backing.reservation-ttl:900000}")
+    private long reservationTtl;
+
     // 订单状态 (常量)
     private static final Integer STATUS_PENDING = 0;
     private static final Integer STATUS_PAID = 1;
@@ -61,6 +76,12 @@ public class BackingServiceImpl implements BackingService {
         User user = getCurrentUser();
         Long rewardId = createDTO.getRewardId();
 
+        // 0. 预占名额 (Redis): 售罄的请求在这里直接拒绝, 不访问数据库; 之后任何失败都会回滚并归还名额
+        RewardStockReserver.Reservation reservation = rewardStockReserver.reserve(rewardId);
+        if (reservation == RewardStockReserver.Reservation.SOLD_OUT) {
+            throw new RuntimeException("回报档位已售罄");
+        }
+
         // 1. 验证回报
         ProjectReward reward = rewardMapper.findById(rewardId);
         if (reward == null) {
@@ -83,7 +104,7 @@ public class BackingServiceImpl implements BackingService {
             throw new RuntimeException("项目已过众筹截止日期");
         }
 
-        // (注意: 库存检查在"支付"那一步才锁定和扣减)
+        // (注意: 数据库中的库存在"支付"那一步才扣减)
 
         // 5. 创建 Backing 实体
         Backing backing = new Backing();
@@ -96,6 +117,11 @@ public class BackingServiceImpl implements BackingService {
 
         // 6. 插入数据库
         backingMapper.insert(backing); // ID 将被回填
+
+        // 7. 名额由该订单保留, 直到支付或过期
+        if (reservation == RewardStockReserver.Reservation.RESERVED) {
+            rewardStockReserver.hold(backing.getId(), rewardId);
+        }
         return backing;
     }
 
@@ -104,11 +130,7 @@ public class BackingServiceImpl implements BackingService {
      */
     @Override
     @Transactional // (!!!!) 必须开启事务, 保证所有操作原子性
-    @Caching(evict = {
-            // 支付成功, 必须清除缓存
-            @CacheEvict(value = "project", key = "#result.projectId"),
-            @CacheEvict(value = "projectList", allEntries = true)
-    })
+    @CacheEvict(value = "project", key = "#result.projectId") // 支付成功, 清除项目详情缓存
     public Backing executePayment(Long backingId) {
         User user = getCurrentUser();
 
@@ -127,21 +149,22 @@ public class BackingServiceImpl implements BackingService {
         if (!Objects.equals(backing.getStatus(), STATUS_PENDING)) {
             throw new RuntimeException("订单状态异常 (可能已支付或已取消)");
         }
+        // 验证 3.1: 订单是否仍在保留期内
+        // (过期的预占会被定时任务归还给 Redis 计数器, 之后再支付会让计数器多出一个名额)
+        if (!LocalDateTime.now().isBefore(backing.getCreateTime().plus(Duration.ofMillis(reservationTtl)))) {
+            throw new RuntimeException("订单已超时, 请重新下单");
+        }
 
-        // --- 2. 锁定回报档位 (检查库存) ---
-        ProjectReward reward = rewardMapper.findByIdForUpdate(backing.getRewardId());
+        // --- 2. 扣减库存 ---
+        ProjectReward reward = rewardMapper.findById(backing.getRewardId());
         if (reward == null) {
             throw new RuntimeException("回报档位不存在");
         }
 
         // 验证 4: 库存 (如果 stock 不为 null)
-        if (reward.getStock() != null) {
-            if (reward.getStock() <= 0) {
-                throw new RuntimeException("回报档位已售罄");
-            }
-            // 扣减库存
-            reward.setStock(reward.getStock() - 1);
-            rewardMapper.update(reward); // 更新库存
+        // 条件 UPDATE 代替 SELECT ... FOR UPDATE + UPDATE: 不先加锁读, 库存不足时影响行数为 0
+        if (reward.getStock() != null && rewardMapper.decrementStock(reward.getId()) == 0) {
+            throw new RuntimeException("回报档位已售罄");
         }
 
         // --- 3. 锁定项目 (增加金额) ---
@@ -164,6 +187,15 @@ public class BackingServiceImpl implements BackingService {
         backing.setStatus(STATUS_PAID); // 1: 已支付
         backingMapper.update(backing);
 
+        // 核心操作 3: 用户的 "已支持" 标记已改变
+        projectDetailLoader.evictUserFlags(backing.getProjectId(), user.getId());
+
+        // 核心操作 3.1: 预占的名额已转为数据库扣减 (事务提交后移除预占记录)
+        rewardStockReserver.consume(backing.getId(), backing.getRewardId());
+
+        // 核心操作 4: 记录该项目的最新金额 (事务提交后), 读取列表时叠加, 不清空列表
+        projectListCache.patchCurrentAmount(project.getId(), project.getCurrentAmount());
+
         return backing;
     }
 
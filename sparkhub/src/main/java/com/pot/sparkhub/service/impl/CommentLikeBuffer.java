@@ -0,0 +1,238 @@
+package com.pot.sparkhub.service.impl;
+
+import com.pot.sparkhub.mapper.CommentLikeMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * 评论点赞的 Redis 写缓冲 (先写 Redis, 由 CommentLikeFlusher 批量写回 MySQL)
+ *
+ * 1. 每条评论一个点赞用户集合 (首次访问时从数据库加载), SADD/SREM 的返回值决定是否真的发生了变化,
+ *    因此重复点赞/取消是幂等的; 集合大小 - 1 即为实时点赞数
+ * 2. 真正发生变化的操作记入待写回 Hash ("{评论ID}:{用户ID}" -> 1 点赞 / 0 取消), 同一用户的多次操作只保留最后一次
+ * 3. 写回时把待写回 Hash 整体改名为本次写回独有的批次 key, 并登记到批次 ZSet (分数 = 租约到期时间);
+ *    写回成功后只删除自己取出的批次; 失败时立即释放租约, 节点崩溃时等租约到期, 由任一节点重新领取 (写回是幂等的)
+ * 4. 同一时间集群内最多一个批次: 旧批次完成前不切出新批次, 同一用户的操作按先后顺序写回
+ *    (否则重试中的旧批次可能晚于新批次写回, 数据库与点赞用户集合不一致)
+ */
+@Component
+public class CommentLikeBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentLikeBuffer.class);
+
+    private static final String LIKERS_PREFIX = "sparkhub:comment:like:";
+    private static final String PENDING_KEY = "sparkhub:comment:like:pending";
+    private static final String BATCHES_KEY = "sparkhub:comment:like:batches";
+    private static final String BATCH_PREFIX = "sparkhub:comment:like:flushing:";
+
+    // 领取一个批次后的租约 (毫秒): 远大于一次写回的耗时, 到期未完成的批次由其他节点重新领取
+    private static final long BATCH_LEASE_MILLIS = 60000;
+
+    // 集合中的占位成员 (用户ID 从 1 开始): 区分 "没有人点赞" 和 "尚未加载"
+    private static final String LOADED_MARKER = "0";
+
+    // 点赞用户集合的过期时间 (每次操作续期; 远大于写回间隔, 过期时不会有未写回的操作)
+    private static final Duration LIKERS_TTL = Duration.ofDays(1);
+
+    private static final String OP_LIKE = "1";
+    private static final String OP_UNLIKE = "0";
+
+    /**
+     * 点赞/取消 (KEYS: 点赞用户集合, 待写回 Hash; ARGV: 用户ID, 操作, TTL, Hash 字段)
+     * @return 1 = 状态已变化, 0 = 未变化 (重复操作), -1 = 集合尚未加载
+     */
+    private static final DefaultRedisScript<Long> TOGGLE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+            "local changed " +
+            "if ARGV[2] == '" + OP_LIKE + "' then " +
+            "  changed = redis.call('SADD', KEYS[1], ARGV[1]) " +
+            "else " +
+            "  changed = redis.call('SREM', KEYS[1], ARGV[1]) " +
+            "end " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3]) " +
+            "if changed == 1 then redis.call('HSET', KEYS[2], ARGV[4], ARGV[2]) end " +
+            "return changed",
+            Long.class);
+
+    /**
+     * 加载点赞用户集合 (KEYS: 集合; ARGV: TTL, 用户ID...), 已被其他请求加载时不覆盖
+     */
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "redis.call('SADD', KEYS[1], '" + LOADED_MARKER + "') " +
+            "for i = 2, #ARGV do redis.call('SADD', KEYS[1], ARGV[i]) end " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 领取一个批次 (KEYS: 待写回, 批次 ZSet; ARGV: 当前时间, 租约, 新批次 key)
+     * 优先重新领取租约已到期 (或已释放) 的批次; 没有未完成的批次时, 才把待写回 Hash 改名为新批次
+     * @return [批次 key, 字段, 值, ...]; 没有可领取的批次时为空
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> TAKE_SCRIPT = new DefaultRedisScript<>(
+            "local batch = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, 1)[1] " +
+            "if batch and redis.call('EXISTS', batch) == 0 then " +
+            "  redis.call('ZREM', KEYS[2], batch) " +
+            "  batch = nil " +
+            "end " +
+            "if not batch then " +
+            "  if redis.call('ZCARD', KEYS[2]) > 0 then return {} end " +
+            "  if redis.call('EXISTS', KEYS[1]) == 0 then return {} end " +
+            "  batch = ARGV[3] " +
+            "  redis.call('RENAME', KEYS[1], batch) " +
+            "end " +
+            "redis.call('ZADD', KEYS[2], ARGV[1] + ARGV[2], batch) " +
+            "local out = {batch} " +
+            "for _, v in ipairs(redis.call('HGETALL', batch)) do out[#out + 1] = v end " +
+            "return out",
+            List.class);
+
+    /**
+     * 一个写回批次
+     * @param key 批次 key (确认或释放时使用)
+     * @param ops 评论ID -> (用户ID -> 是否点赞)
+     */
+    public record Batch(String key, Map<Long, Map<Long, Boolean>> ops) {
+    }
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private CommentLikeMapper likeMapper;
+
+    /**
+     * 点赞
+     * @return 是否为新的点赞 (已点赞过返回 false)
+     */
+    public boolean like(Long commentId, Long userId) {
+        return toggle(commentId, userId, OP_LIKE);
+    }
+
+    /**
+     * 取消点赞
+     * @return 是否真的取消了 (没点过赞返回 false)
+     */
+    public boolean unlike(Long commentId, Long userId) {
+        return toggle(commentId, userId, OP_UNLIKE);
+    }
+
+    /**
+     * 尚未写回数据库的点赞状态 (用于在数据库的查询结果上叠加, 让用户立即看到自己的操作)
+     * @return 评论ID -> 是否已点赞 (只包含有未写回操作的评论; Redis 不可用时为空)
+     */
+    public Map<Long, Boolean> pendingStates(Long userId, List<Long> commentIds) {
+        Map<Long, Boolean> states = new HashMap<>();
+        if (commentIds.isEmpty()) {
+            return states;
+        }
+        List<Object> fields = new ArrayList<>(commentIds.size());
+        for (Long commentId : commentIds) {
+            fields.add(field(commentId, userId));
+        }
+        try {
+            // 先看写回中的批次 (按创建顺序), 再用待写回的覆盖 (后者更新)
+            List<String> keys = new ArrayList<>();
+            Set<String> batches = redisTemplate.opsForZSet().range(BATCHES_KEY, 0, -1);
+            if (batches != null) {
+                keys.addAll(new TreeSet<>(batches));
+            }
+            keys.add(PENDING_KEY);
+            for (String key : keys) {
+                List<Object> ops = redisTemplate.opsForHash().multiGet(key, fields);
+                for (int i = 0; i < commentIds.size(); i++) {
+                    Object op = ops.get(i);
+                    if (op != null) {
+                        states.put(commentIds.get(i), OP_LIKE.equals(op));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("读取未写回的点赞状态失败: {}", e.getMessage());
+        }
+        return states;
+    }
+
+    /**
+     * 领取一批待写回的操作 (写回完成后调用 {@link #completeFlush(Batch)}, 失败时调用 {@link #releaseBatch(Batch)})
+     * @return 本次领取的批次; 没有待写回的操作时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public Batch takePending() {
+        // 批次 key 带创建时间 (补零, 按字典序即按创建顺序) 和随机后缀, 每次写回独有
+        String newBatch = BATCH_PREFIX + String.format("%013d", System.currentTimeMillis()) + ":" + UUID.randomUUID();
+        List<String> entries = redisTemplate.execute(TAKE_SCRIPT, List.of(PENDING_KEY, BATCHES_KEY),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(BATCH_LEASE_MILLIS), newBatch);
+        if (entries == null || entries.isEmpty()) {
+            return null;
+        }
+        Map<Long, Map<Long, Boolean>> ops = new HashMap<>();
+        for (int i = 1; i + 1 < entries.size(); i += 2) {
+            String field = entries.get(i);
+            int sep = field.indexOf(':');
+            Long commentId = Long.valueOf(field.substring(0, sep));
+            Long userId = Long.valueOf(field.substring(sep + 1));
+            ops.computeIfAbsent(commentId, id -> new HashMap<>()).put(userId, OP_LIKE.equals(entries.get(i + 1)));
+        }
+        return new Batch(entries.get(0), ops);
+    }
+
+    /**
+     * 本批操作已全部写回数据库: 只删除本次领取的批次
+     */
+    public void completeFlush(Batch batch) {
+        redisTemplate.delete(batch.key());
+        redisTemplate.opsForZSet().remove(BATCHES_KEY, batch.key());
+    }
+
+    /**
+     * 本批操作写回失败: 释放租约, 下一轮由任一节点重新领取
+     */
+    public void releaseBatch(Batch batch) {
+        redisTemplate.opsForZSet().add(BATCHES_KEY, batch.key(), 0);
+    }
+
+    // --- 内部方法 ---
+
+    private boolean toggle(Long commentId, Long userId, String op) {
+        List<String> keys = List.of(LIKERS_PREFIX + commentId, PENDING_KEY);
+        Object[] args = {String.valueOf(userId), op, String.valueOf(LIKERS_TTL.toMillis()), field(commentId, userId)};
+
+        Long changed = redisTemplate.execute(TOGGLE_SCRIPT, keys, args);
+        if (changed != null && changed == -1) {
+            // 首次访问这条评论: 从数据库加载已有的点赞用户
+            load(commentId);
+            changed = redisTemplate.execute(TOGGLE_SCRIPT, keys, args);
+        }
+        return changed != null && changed == 1;
+    }
+
+    private void load(Long commentId) {
+        List<Long> userIds = likeMapper.findUserIdsByCommentId(commentId);
+        List<String> args = new ArrayList<>(userIds.size() + 1);
+        args.add(String.valueOf(LIKERS_TTL.toMillis()));
+        for (Long userId : userIds) {
+            args.add(String.valueOf(userId));
+        }
+        redisTemplate.execute(LOAD_SCRIPT, List.of(LIKERS_PREFIX + commentId), args.toArray());
+    }
+
+    private static String field(Long commentId, Long userId) {
+        return commentId + ":" + userId;
+    }
+}
@@ -0,0 +1,64 @@
+package com.pot.sparkhub.service.impl;
+
+import com.pot.sparkhub.cache.CommentCache;
+import com.pot.sparkhub.cache.CommentLikerIndex;
+import com.pot.sparkhub.entity.ProjectComment;
+import com.pot.sparkhub.mapper.CommentLikeMapper;
+import com.pot.sparkhub.mapper.ProjectCommentMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 把一条评论缓冲在 Redis 中的点赞操作写回 MySQL (独立 Bean, 每条评论一个短事务)
+ *
+ * 点赞数按实际插入/删除的行数调整: 重复写回同一批操作时 (例如上一轮写回后未能确认),
+ * INSERT IGNORE / DELETE 影响 0 行, 点赞数不会被重复累加
+ */
+@Component
+public class CommentLikeFlusher {
+
+    @Autowired
+    private CommentLikeMapper likeMapper;
+
+    @Autowired
+    private ProjectCommentMapper commentMapper;
+
+    @Autowired
+    private CommentCache commentCache;
+
+    @Autowired
+    private CommentLikerIndex likerIndex;
+
+    /**
+     * 写回一条评论的点赞操作
+     * @param likedUserIds   点赞的用户
+     * @param unlikedUserIds 取消点赞的用户
+     * @return 点赞数的净变化
+     */
+    @Transactional
+    public int flushComment(Long commentId, List<Long> likedUserIds, List<Long> unlikedUserIds) {
+        // 1. 一条多行 INSERT IGNORE + 一条 DELETE
+        int inserted = likedUserIds.isEmpty() ? 0 : likeMapper.insertIgnoreBatch(commentId, likedUserIds);
+        int deleted = unlikedUserIds.isEmpty() ? 0 : likeMapper.deleteBatch(commentId, unlikedUserIds);
+
+        // 2. 事务提交后通知所有节点修补点赞位图
+        likerIndex.publishChange(commentId, likedUserIds, unlikedUserIds);
+
+        // 3. 点赞数只更新一次 (热门评论不再每次点赞都争抢同一行的锁)
+        int delta = inserted - deleted;
+        if (delta == 0) {
+            return 0;
+        }
+        likeMapper.addCommentLikeCount(commentId, delta);
+
+        // 4. 事务提交后修补评论缓存
+        ProjectComment comment = commentMapper.findById(commentId);
+        if (comment != null) {
+            commentCache.patchLikeCount(comment.getProjectId(), commentId, comment.getParentId() == null, delta);
+        }
+        return delta;
+    }
+}
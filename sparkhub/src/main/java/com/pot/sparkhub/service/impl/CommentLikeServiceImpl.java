@@ -2,7 +2,6 @@ package com.pot.sparkhub.service.impl;
 
 import com.pot.sparkhub.entity.ProjectComment;
 import com.pot.sparkhub.entity.User;
-import com.pot.sparkhub.mapper.CommentLikeMapper;
 import com.pot.sparkhub.mapper.ProjectCommentMapper;
 import com.pot.sparkhub.service.CommentLikeService;
 import com.pot.sparkhub.service.NotificationService;
@@ -10,13 +9,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * 评论点赞: 先写入 Redis (CommentLikeBuffer), 由 CommentLikeScheduler 每秒批量写回数据库
+ * 评论的点赞数 (数据库和评论缓存) 在写回时更新
+ */
 @Service
 public class CommentLikeServiceImpl implements CommentLikeService {
 
     @Autowired
-    private CommentLikeMapper likeMapper;
+    private CommentLikeBuffer likeBuffer;
     @Autowired
     private ProjectCommentMapper commentMapper;
     @Autowired
@@ -32,32 +34,30 @@ public class CommentLikeServiceImpl implements CommentLikeService {
     }
 
     @Override
-    @Transactional // 必须是事务
     public void likeComment(Long commentId) {
         User user = getCurrentUser();
         Long userId = user.getId();
 
-        // 1. 检查是否已点赞 (幂等性)
-        if (likeMapper.exists(userId, commentId)) {
-            return; // 已经点赞, 无需操作
+        // 1. 查询被点赞的评论 (主键查询, 同时用于通知)
+        ProjectComment likedComment = commentMapper.findById(commentId);
+        if (likedComment == null) {
+            throw new RuntimeException("评论不存在");
         }
 
-        // 2. 插入点赞记录
-        likeMapper.insert(userId, commentId);
-
-        // 3. 增加评论总数
-        likeMapper.incrementCommentLikeCount(commentId);
-
-        // 4. 发送通知
-        // 4.1 查询被点赞的评论
-        ProjectComment likedComment = commentMapper.findById(commentId);
+        // 2. 记录点赞 (幂等性: 已经点赞时无需操作)
+        if (!likeBuffer.like(commentId, userId)) {
+            return;
+        }
 
-        // 4.2 检查是否有效 且 不是自己点赞自己
-        if (likedComment != null && !likedComment.getUserId().equals(userId)) {
-            notificationService.sendUserNotification(
+        // 3. 发送通知 (不是自己点赞自己)
+        if (!likedComment.getUserId().equals(userId)) {
+            // (同一条评论的点赞合并为一条通知: "用户 'xx' 等 N 人点赞了您的评论。")
+            notificationService.sendAggregatedUserNotification(
                     likedComment.getUserId(), // (接收者：评论作者)
                     "NEW_LIKE_ON_COMMENT",
+                    "comment:" + likedComment.getId(),
                     String.format("用户 '%s' 点赞了您的评论。", user.getUsername()),
+                    String.format("用户 '%s' 等 {count} 人点赞了您的评论。", user.getUsername()),
                     // (跳转链接：项目ID + 评论锚点)
                     "/project/" + likedComment.getProjectId() + "#comment-" + likedComment.getId(),
                     userId // (发送者：点赞的人)
@@ -66,20 +66,10 @@ public class CommentLikeServiceImpl implements CommentLikeService {
     }
 
     @Override
-    @Transactional // 必须是事务
     public void unlikeComment(Long commentId) {
         User user = getCurrentUser();
-        Long userId = user.getId();
-
-        // 1. 检查是否已点赞
-        if (!likeMapper.exists(userId, commentId)) {
-            return; // 没点过赞, 无需操作
-        }
-
-        // 2. 删除点赞记录
-        likeMapper.delete(userId, commentId);
 
-        // 3. 减少评论总数
-        likeMapper.decrementCommentLikeCount(commentId);
+        // 取消点赞 (幂等性: 没点过赞时无需操作)
+        likeBuffer.unlike(commentId, user.getId());
     }
-}
\ No newline at end of file
+}
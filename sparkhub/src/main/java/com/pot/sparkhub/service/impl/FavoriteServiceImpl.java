@@ -8,7 +8,6 @@ import com.pot.sparkhub.mapper.FavoriteMapper;
 import com.pot.sparkhub.mapper.ProjectMapper;
 import com.pot.sparkhub.service.FavoriteService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -26,6 +25,9 @@ public class FavoriteServiceImpl implements FavoriteService {
     @Autowired
     private ProjectMapper projectMapper; // 用于检查项目是否存在
 
+    @Autowired
+    private ProjectDetailLoader projectDetailLoader; // 用于清除用户的收藏标记缓存
+
     // 获取当前登录的用户
     private User getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -37,7 +39,6 @@ public class FavoriteServiceImpl implements FavoriteService {
 
     @Override
     @Transactional
-    @CacheEvict(value = "project", key = "#projectId")
     public void addFavorite(Long projectId) {
         User user = getCurrentUser();
         Long userId = user.getId();
@@ -60,14 +61,17 @@ public class FavoriteServiceImpl implements FavoriteService {
         favorite.setProjectId(projectId);
         favorite.setCreateTime(LocalDateTime.now());
         favoriteMapper.insert(favorite);
+
+        // 4. 项目详情缓存与用户无关, 只需清除该用户的标记
+        projectDetailLoader.evictUserFlags(projectId, userId);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "project", key = "#projectId")
     public void removeFavorite(Long projectId) {
         User user = getCurrentUser();
         favoriteMapper.deleteByUserAndProject(user.getId(), projectId);
+        projectDetailLoader.evictUserFlags(projectId, user.getId());
     }
 
     @Override
@@ -0,0 +1,40 @@
+package com.pot.sparkhub.service.impl;
+
+import com.pot.sparkhub.mapper.NotificationMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 归档过期的已读通知 (独立 Bean, 保证每一批都通过代理调用, 在各自的短事务中执行)
+ * 只归档已读通知, 因此不影响未读数
+ */
+@Component
+public class NotificationArchiver {
+
+    @Autowired
+    private NotificationMapper notificationMapper;
+
+    /**
+     * 将一批在 cutoff 之前创建的已读通知移入 notification_archive
+     * @param cutoff    创建时间早于此时间的已读通知会被归档
+     * @param batchSize 本批最多归档的数量
+     * @return 本批归档的数量
+     */
+    @Transactional
+    public int archiveBatch(LocalDateTime cutoff, int batchSize) {
+        // 1. 锁定本批通知 (走 idx_notification_read_create, 只锁这一批)
+        List<Long> ids = notificationMapper.findReadBeforeForUpdate(cutoff, batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        // 2. 复制到归档表, 再从热表删除 (同一事务, 要么都成功要么都回滚)
+        notificationMapper.copyToArchive(ids);
+        notificationMapper.deleteByIds(ids);
+        return ids.size();
+    }
+}
@@ -0,0 +1,397 @@
+package com.pot.sparkhub.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pot.sparkhub.dto.NotificationDTO;
+import com.pot.sparkhub.entity.Notification;
+import com.pot.sparkhub.entity.User;
+import com.pot.sparkhub.mapper.UserMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 通知的 SSE 实时推送 (GET /api/notifications/stream)
+ *
+ * 1. 每个节点只登记连接到自己的订阅者 (用户ID -> 连接)
+ * 2. 通知写入后, 先推送给本节点上在线的接收者, 再通过 Redis 频道 {@link #PUSH_CHANNEL} 广播给其他节点
+ *    (消息带本节点标识, 收到自己发出的消息时忽略; 广播失败或监听断开时本节点的用户不受影响)
+ *    推送内容: 新通知 + 最新的未读数
+ * 3. 每个连接一个发送队列, 由推送线程池依次发送 (同一连接的事件保持顺序, 慢客户端最多占用一个线程);
+ *    积压过多或一次发送超过 send-timeout 的连接被移除 (客户端自动重连)
+ * 4. 定时发送心跳, 发送失败的连接立即移除; 连接超过最大时长后关闭 (客户端自动重连)
+ * 5. 每个节点的连接数有上限, 超出时拒绝新连接 (客户端退回轮询或稍后重连)
+ */
+@Component
+public class NotificationPusher implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationPusher.class);
+
+    // 集群内广播新通知的频道
+    public static final String PUSH_CHANNEL = "sparkhub:notification:push";
+
+    // 消息格式: nodeId|JSON
+    private static final String SEPARATOR = "|";
+
+    // SSE 事件名
+    private static final String EVENT_NOTIFICATION = "notification";
+    private static final String EVENT_UNREAD = "unread";
+
+    // 单个连接最多积压的事件数, 超出时视为慢客户端, 移除该连接
+    private static final int MAX_QUEUED_EVENTS = 100;
+
+    // 本节点标识, 用于忽略自己发出的消息
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private UnreadCounter unreadCounter;
+
+    // 本节点的最大连接数
+    @Value("${sparkhub.notification.sse.max-connections:5000}")
+    private int maxConnections;
+
+    // 单个连接的最大时长 (毫秒), 超时后关闭, 由客户端重连
+    @Value("${sparkhub.notification.sse.timeout:1800000}")
+    private long timeout;
+
+    // 推送线程数
+    @Value("${sparkhub.notification.sse.push-threads:8}")
+    private int pushThreads;
+
+    // 单次发送的最长时间 (毫秒), 超过时移除该连接
+    @Value("${sparkhub.notification.sse.send-timeout:10000}")
+    private long sendTimeout;
+
+    // 本节点的订阅者 (用户ID -> 该用户的所有连接, 例如多个标签页)
+    private final Map<Long, Set<Connection>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    // 推送线程池: 写慢客户端时不阻塞 Redis 监听线程和定时任务线程
+    // (每个连接同一时间最多一个发送任务, 排队的任务数不超过连接数)
+    private ThreadPoolExecutor pushExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        pushExecutor = new ThreadPoolExecutor(pushThreads, pushThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "notification-push-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        listenerContainer.addMessageListener(this, new ChannelTopic(PUSH_CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pushExecutor.shutdown();
+        subscribers.values().forEach(set -> set.forEach(connection -> connection.emitter.complete()));
+    }
+
+    /**
+     * 登记一个新连接, 并立即推送当前未读数
+     * @return 新连接; 本节点连接数已满时返回 null
+     */
+    public SseEmitter subscribe(Long userId) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return null;
+        }
+
+        Connection connection = new Connection(userId, new SseEmitter(timeout));
+        // 在 compute 中添加: 与 unsubscribe 移除空集合互斥
+        subscribers.compute(userId, (id, set) -> {
+            Set<Connection> result = set != null ? set : new CopyOnWriteArraySet<>();
+            result.add(connection);
+            return result;
+        });
+        Runnable cleanup = () -> unsubscribe(connection);
+        connection.emitter.onCompletion(cleanup);
+        connection.emitter.onTimeout(cleanup);
+        connection.emitter.onError(e -> cleanup.run());
+
+        connection.enqueue(SseEmitter.event().name(EVENT_UNREAD).data(unreadCounter.get(userId)));
+        return connection.emitter;
+    }
+
+    /**
+     * 广播一批刚写入的通知 (由 NotificationWriter 在 INSERT 成功后调用)
+     */
+    public void publish(List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        // 每个发送者只查一次 (系统通知没有发送者)
+        Map<Long, User> senders = new HashMap<>();
+        Map<Long, List<NotificationDTO>> message = new LinkedHashMap<>();
+        for (Notification n : notifications) {
+            User sender = n.getSenderId() == null ? null
+                    : senders.computeIfAbsent(n.getSenderId(), userMapper::findById);
+            message.computeIfAbsent(n.getRecipientId(), id -> new ArrayList<>()).add(toDTO(n, sender));
+        }
+        broadcast(message);
+    }
+
+    /**
+     * 广播某个用户的未读数已变化 (标记已读后, 同步该用户的其他标签页; 事务提交后执行)
+     */
+    public void publishUnread(Long recipientId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    broadcast(Map.of(recipientId, List.of()));
+                }
+            });
+        } else {
+            broadcast(Map.of(recipientId, List.of()));
+        }
+    }
+
+    /**
+     * 收到其他节点的广播: 推送给本节点上在线的接收者 (自己发出的消息已在本地推送过)
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.indexOf(SEPARATOR);
+        if (sep < 0 || nodeId.equals(body.substring(0, sep))) {
+            return; // 格式错误, 或者是自己发出的消息
+        }
+        try {
+            Map<Long, List<NotificationDTO>> pushes = objectMapper.readValue(body.substring(sep + 1),
+                    new TypeReference<Map<Long, List<NotificationDTO>>>() {});
+            deliver(pushes);
+        } catch (Exception e) {
+            log.warn("解析通知推送消息失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时心跳: 保持连接不被代理/负载均衡器关闭, 同时清理已断开的连接
+     * (只入队, 由推送线程发送; 发送超时的连接在这里移除)
+     */
+    @Scheduled(fixedDelay = 25000)
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        subscribers.values().forEach(set -> set.forEach(connection -> {
+            if (connection.stalled(now)) {
+                log.warn("通知推送发送超时, 移除连接 (用户: {})", connection.userId);
+                connection.close(null);
+            } else {
+                connection.enqueue(SseEmitter.event().comment("heartbeat"));
+            }
+        }));
+    }
+
+    /**
+     * 本节点当前的连接数
+     */
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    // --- 内部方法 ---
+
+    private void broadcast(Map<Long, List<NotificationDTO>> pushes) {
+        // 1. 先推送给本节点的订阅者 (不依赖本节点能否收到自己的广播)
+        deliver(pushes);
+
+        // 2. 广播给其他节点 (失败时其他节点的用户在重连或刷新时拿到最新数据)
+        try {
+            redisTemplate.convertAndSend(PUSH_CHANNEL, nodeId + SEPARATOR + objectMapper.writeValueAsString(pushes));
+        } catch (Exception e) {
+            log.warn("通知推送消息广播失败: {}", e.getMessage());
+        }
+    }
+
+    private void deliver(Map<Long, List<NotificationDTO>> pushes) {
+        pushes.forEach((userId, notifications) -> {
+            if (!subscribers.containsKey(userId)) {
+                return; // 不在本节点上
+            }
+            // 查询未读数也交给推送线程, 不占用调用方 (Redis 监听线程 / 通知写入线程)
+            execute(() -> {
+                Set<Connection> set = subscribers.get(userId);
+                if (set == null) {
+                    return;
+                }
+                long unread = unreadCounter.get(userId);
+                for (Connection connection : set) {
+                    for (NotificationDTO notification : notifications) {
+                        connection.enqueue(SseEmitter.event().name(EVENT_NOTIFICATION).data(notification));
+                    }
+                    connection.enqueue(SseEmitter.event().name(EVENT_UNREAD).data(unread));
+                }
+            });
+        });
+    }
+
+    private void execute(Runnable task) {
+        try {
+            pushExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // 正在关闭
+        }
+    }
+
+    private void unsubscribe(Connection connection) {
+        AtomicBoolean removed = new AtomicBoolean();
+        subscribers.computeIfPresent(connection.userId, (id, set) -> {
+            removed.set(set.remove(connection));
+            return set.isEmpty() ? null : set;
+        });
+        if (removed.get()) {
+            connections.decrementAndGet();
+        }
+    }
+
+    /**
+     * 一个 SSE 连接和它的发送队列 (同一时间最多一个推送线程在发送)
+     */
+    private final class Connection {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+        // 当前这次发送的开始时间 (0 = 空闲)
+        private volatile long sendingSince;
+
+        Connection(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            if (queued.incrementAndGet() > MAX_QUEUED_EVENTS) {
+                log.warn("通知推送积压过多, 移除连接 (用户: {})", userId);
+                close(null);
+                return;
+            }
+            queue.offer(event);
+            if (draining.compareAndSet(false, true)) {
+                execute(this::drain);
+            }
+        }
+
+        /**
+         * 依次发送队列中的事件 (推送线程)
+         */
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    sendingSince = System.currentTimeMillis();
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        close(e); // 客户端已断开
+                        return;
+                    } finally {
+                        sendingSince = 0;
+                    }
+                }
+                if (closed) {
+                    // 发送超时被移除的连接: 阻塞的发送返回后再结束 (不在其他线程上等待写锁)
+                    emitter.complete();
+                    return;
+                }
+            } finally {
+                draining.set(false);
+            }
+            // 释放标记的同时有新事件入队
+            if (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+                execute(this::drain);
+            }
+        }
+
+        boolean stalled(long now) {
+            long since = sendingSince;
+            return since != 0 && now - since > sendTimeout;
+        }
+
+        /**
+         * 移除连接; 发送失败时 (error 不为 null) 以错误结束, 否则由推送线程在当前发送返回后结束
+         */
+        void close(Exception error) {
+            closed = true;
+            queue.clear();
+            unsubscribe(this);
+            if (error != null) {
+                emitter.completeWithError(error);
+            } else if (draining.compareAndSet(false, true)) {
+                execute(this::drain);
+            }
+        }
+    }
+
+    private static NotificationDTO toDTO(Notification notification, User sender) {
+        NotificationDTO dto = new NotificationDTO();
+        dto.setId(notification.getId());
+        dto.setContent(notification.getContent());
+        dto.setType(notification.getType());
+        dto.setLinkUrl(notification.getLinkUrl());
+        dto.setRead(notification.isRead());
+        dto.setActorCount(notification.getActorCount());
+        dto.setCreateTime(notification.getCreateTime() != null ? notification.getCreateTime() : LocalDateTime.now());
+        if (sender != null) {
+            dto.setSenderId(sender.getId());
+            dto.setSenderUsername(sender.getUsername());
+            dto.setSenderAvatar(sender.getAvatar());
+        }
+        return dto;
+    }
+}
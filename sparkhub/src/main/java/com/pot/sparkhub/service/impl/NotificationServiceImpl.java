@@ -2,45 +2,69 @@ package com.pot.sparkhub.service.impl;
 
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
+import com.pot.sparkhub.common.Cursor;
+import com.pot.sparkhub.common.CursorPage;
 import com.pot.sparkhub.dto.NotificationDTO;
 import com.pot.sparkhub.entity.Notification;
 import com.pot.sparkhub.mapper.NotificationMapper;
 import com.pot.sparkhub.service.NotificationService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class NotificationServiceImpl implements NotificationService {
 
+    private static final Logger log = LoggerFactory.getLogger(NotificationServiceImpl.class);
+
     @Autowired
     private NotificationMapper notificationMapper;
 
+    @Autowired
+    private NotificationWriter notificationWriter;
+
+    @Autowired
+    private UnreadCounter unreadCounter;
+
+    @Autowired
+    private NotificationPusher notificationPusher;
+
+    // 聚合窗口 (毫秒): 同一窗口内的同类互动合并为一条通知
+    @Value("${sparkhub.notification.aggregate-window:86400000}")
+    private long aggregateWindow;
+
+    // 批量发送的后台线程 (单线程: 批量通知彼此之间无需并行, 也不会占满数据库连接池)
+    private final ExecutorService fanoutExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "notification-fanout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // 等待已提交的批量通知写完
+        fanoutExecutor.shutdown();
+        fanoutExecutor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
     /**
      * [私有] 核心的发送方法
+     * 不在调用方的事务中写库: 事务提交后交给 NotificationWriter 异步合并写入
      */
-    @Transactional
     public void sendNotification(Long recipientId, String type, String content, String linkUrl, Long senderId) {
         // (在真实项目中, 你还应该检查 recipientId != senderId, 防止自己给自己发通知)
-        try {
-            Notification notification = new Notification();
-            notification.setRecipientId(recipientId);
-            notification.setType(type);
-            notification.setContent(content);
-            notification.setLinkUrl(linkUrl);
-            notification.setSenderId(senderId);
-            notification.setRead(false); // 默认为未读
-            notification.setCreateTime(LocalDateTime.now());
-
-            notificationMapper.insert(notification);
-        } catch (Exception e) {
-            // [重要] 通知失败不应该中断主业务 (如评论、点赞)
-            // 所以我们捕获异常, 只在控制台打印错误
-            System.err.println("发送通知失败: " + e.getMessage());
-        }
+        notificationWriter.enqueue(newNotification(recipientId, type, content, linkUrl, senderId, LocalDateTime.now()));
     }
 
     /**
@@ -61,6 +85,59 @@ public class NotificationServiceImpl implements NotificationService {
         sendNotification(recipientId, type, content, linkUrl, senderId);
     }
 
+    /**
+     * 公开方法 2.1：发送可聚合的互动通知 (点赞、评论等高频互动)
+     * 聚合键 = 类型:目标:时间窗口序号; 接收者未读期间, 同一聚合键的通知原地合并 ("某某等 N 人...")
+     * @param target           互动目标 (例如 "comment:12")
+     * @param content          只有一次互动时的内容
+     * @param aggregateContent 合并后的内容模板, "{count}" 会被替换为次数
+     */
+    @Override
+    public void sendAggregatedUserNotification(Long recipientId, String type, String target, String content,
+                                               String aggregateContent, String linkUrl, Long senderId) {
+        LocalDateTime now = LocalDateTime.now();
+        long window = System.currentTimeMillis() / aggregateWindow;
+        Notification notification = newNotification(recipientId, type, content, linkUrl, senderId, now);
+        notification.setAggregateKey(type + ":" + target + ":" + window);
+        notification.setAggregateContent(aggregateContent);
+        notificationWriter.enqueue(notification);
+    }
+
+    /**
+     * 公开方法 3：向大量用户发送同一条系统通知 (例如项目众筹结束时通知所有支持者)
+     * 在后台线程中分批, 每批一条多行 INSERT, 不占用调用方的线程和事务
+     */
+    @Override
+    public void sendSystemNotificationToAll(List<Long> recipientIds, String type, String content, String linkUrl) {
+        if (recipientIds == null || recipientIds.isEmpty()) {
+            return;
+        }
+        List<Long> recipients = List.copyOf(recipientIds);
+        fanoutExecutor.execute(() -> {
+            long start = System.currentTimeMillis();
+            LocalDateTime now = LocalDateTime.now();
+            List<Notification> notifications = new ArrayList<>(recipients.size());
+            for (Long recipientId : recipients) {
+                notifications.add(newNotification(recipientId, type, content, linkUrl, null, now));
+            }
+            notificationWriter.persist(notifications); // 按批多行插入
+            log.info("批量发送通知完成: {} 条, 类型: {}, 耗时 {} ms", recipients.size(), type, System.currentTimeMillis() - start);
+        });
+    }
+
+    private static Notification newNotification(Long recipientId, String type, String content, String linkUrl,
+                                                Long senderId, LocalDateTime createTime) {
+        Notification notification = new Notification();
+        notification.setRecipientId(recipientId);
+        notification.setType(type);
+        notification.setContent(content);
+        notification.setLinkUrl(linkUrl);
+        notification.setSenderId(senderId);
+        notification.setRead(false); // 默认为未读
+        notification.setCreateTime(createTime);
+        return notification;
+    }
+
     // --- Controller 调用的方法 ---
 
     /**
@@ -78,12 +155,34 @@ public class NotificationServiceImpl implements NotificationService {
         return new PageInfo<>(notifications);
     }
 
+    /**
+     * 获取通知列表 (游标分页 + 过滤)
+     */
+    @Override
+    public CursorPage<NotificationDTO> getNotificationsForUserAfter(Long recipientId, String filter, String after, int pageSize) {
+        pageSize = CursorPage.clampPageSize(pageSize);
+
+        // 1. 解析游标 (第一页为 null)
+        Cursor cursor = Cursor.decode(after);
+
+        // 2. 多查一条, 用于判断是否还有下一页
+        List<NotificationDTO> rows = notificationMapper.findNotificationsByRecipientIdAfter(
+                recipientId,
+                filter,
+                cursor == null ? null : cursor.asTime(),
+                cursor == null ? null : cursor.getId(),
+                pageSize + 1
+        );
+        return CursorPage.of(rows, pageSize, n -> Cursor.encode(n.getCreateTime(), n.getId()));
+    }
+
     /**
      * 获取未读总数
      */
     @Override
     public long getUnreadCount(Long recipientId) {
-        return notificationMapper.countUnreadByRecipientId(recipientId);
+        // Redis 计数器 (未命中时才 COUNT)
+        return unreadCounter.get(recipientId);
     }
 
     /**
@@ -93,7 +192,11 @@ public class NotificationServiceImpl implements NotificationService {
     @Transactional
     public void markAsRead(Long notificationId, Long recipientId) {
         // Mapper 中的 SQL 包含了 recipientId, 确保用户只能修改自己的通知
-        notificationMapper.markAsRead(notificationId, recipientId);
+        // 只有原本未读的通知会被更新 (影响行数为 1), 此时未读数 -1
+        if (notificationMapper.markAsRead(notificationId, recipientId) > 0) {
+            unreadCounter.decrement(recipientId);
+            notificationPusher.publishUnread(recipientId);
+        }
     }
 
     /**
@@ -103,5 +206,7 @@ public class NotificationServiceImpl implements NotificationService {
     @Transactional
     public void markAllAsRead(Long recipientId) {
         notificationMapper.markAllAsRead(recipientId);
+        unreadCounter.reset(recipientId);
+        notificationPusher.publishUnread(recipientId);
     }
 }
\ No newline at end of file
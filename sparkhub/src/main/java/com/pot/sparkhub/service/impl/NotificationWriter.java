@@ -0,0 +1,217 @@
+package com.pot.sparkhub.service.impl;
+
+import com.pot.sparkhub.entity.Notification;
+import com.pot.sparkhub.mapper.NotificationMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 通知的异步批量写入
+ *
+ * 1. 业务事务提交后才入队 (回滚的业务不会产生通知, 也不延长业务事务)
+ * 2. 后台线程从有界队列中取出通知, 每隔几毫秒合并为一条多行 INSERT
+ * 3. 队列已满时由调用线程直接写入 (背压), 应用关闭时写完队列中剩余的通知
+ * 4. 聚合通知 (点赞、评论等) 在同一批内先合并, 写库时再合并到接收者已有的未读通知
+ */
+@Component
+public class NotificationWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationWriter.class);
+
+    // 每条多行 INSERT 的最大行数
+    private static final int MAX_BATCH_SIZE = 2000;
+
+    @Autowired
+    private NotificationMapper notificationMapper;
+
+    @Autowired
+    private UnreadCounter unreadCounter;
+
+    @Autowired
+    private NotificationPusher notificationPusher;
+
+    // 队列容量
+    @Value("${sparkhub.notification.queue-capacity:10000}")
+    private int queueCapacity;
+
+    // 合并窗口 (毫秒): 取到第一条通知后, 最多再等这么久凑成一批
+    @Value("${sparkhub.notification.flush-interval:5}")
+    private long flushInterval;
+
+    private BlockingQueue<Notification> queue;
+    private Thread consumer;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        consumer = new Thread(this::consume, "notification-writer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // 1. 停止后台线程 (不中断, 让它写完手上的这一批; 空闲时最多 1 秒退出)
+        running = false;
+        consumer.join(TimeUnit.SECONDS.toMillis(10));
+
+        // 2. 写完队列中剩余的通知
+        List<Notification> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        persist(remaining);
+    }
+
+    /**
+     * 提交一条通知: 在事务中调用时, 推迟到事务提交后入队
+     */
+    public void enqueue(Notification notification) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    offer(notification);
+                }
+            });
+        } else {
+            offer(notification);
+        }
+    }
+
+    /**
+     * 写入一批通知
+     * 1. 普通通知按 MAX_BATCH_SIZE 分批写入 (每批一条多行 INSERT, 一批失败不影响其他批次)
+     * 2. 聚合通知先在本批内按 (接收者, 聚合键) 合并, 再逐条插入或合并到已有的未读通知
+     */
+    public void persist(List<Notification> notifications) {
+        List<Notification> plain = new ArrayList<>(notifications.size());
+        Map<String, Notification> aggregated = new LinkedHashMap<>();
+        for (Notification notification : notifications) {
+            if (notification.getAggregateKey() == null) {
+                plain.add(notification);
+            } else {
+                // 保留最近一次互动, 累加次数
+                aggregated.merge(notification.getRecipientId() + ":" + notification.getAggregateKey(), notification,
+                        (earlier, later) -> {
+                            later.setActorCount(earlier.getActorCount() + later.getActorCount());
+                            return later;
+                        });
+            }
+        }
+
+        for (int from = 0; from < plain.size(); from += MAX_BATCH_SIZE) {
+            List<Notification> batch = plain.subList(from, Math.min(from + MAX_BATCH_SIZE, plain.size()));
+            try {
+                notificationMapper.insertBatch(batch);
+            } catch (Exception e) {
+                // 通知失败不应该中断主业务, 只记录日志
+                log.warn("写入通知失败 ({} 条): {}", batch.size(), e.getMessage());
+                continue;
+            }
+            // 写入成功后更新接收者的未读数, 并推送给在线的接收者
+            unreadCounter.increment(batch.stream()
+                    .collect(Collectors.groupingBy(Notification::getRecipientId, Collectors.counting())));
+            publish(batch);
+        }
+
+        for (Notification notification : aggregated.values()) {
+            persistAggregate(notification);
+        }
+    }
+
+    // --- 内部方法 ---
+
+    private void persistAggregate(Notification notification) {
+        if (notification.getActorCount() > 1) {
+            notification.setContent(notification.getAggregateContent()
+                    .replace("{count}", String.valueOf(notification.getActorCount())));
+        }
+        try {
+            if (notificationMapper.upsertAggregate(notification) == 1) {
+                // 新的一条未读通知
+                unreadCounter.increment(Map.of(notification.getRecipientId(), 1L));
+            } else {
+                // 合并到已有的未读通知 (未读数不变), 推送合并后的内容
+                Notification merged = notificationMapper.findAggregateById(notification.getId());
+                if (merged != null) {
+                    notification.setContent(merged.getContent());
+                    notification.setActorCount(merged.getActorCount());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("写入聚合通知失败 ({}): {}", notification.getAggregateKey(), e.getMessage());
+            return;
+        }
+        publish(List.of(notification));
+    }
+
+    private void publish(List<Notification> notifications) {
+        try {
+            notificationPusher.publish(notifications);
+        } catch (Exception e) {
+            log.warn("推送通知失败 ({} 条): {}", notifications.size(), e.getMessage());
+        }
+    }
+
+    private void offer(Notification notification) {
+        if (!running || !queue.offer(notification)) {
+            // 背压: 队列已满 (或正在关闭), 由调用线程直接写入
+            persist(List.of(notification));
+        }
+    }
+
+    /**
+     * 后台线程: 取到第一条后, 在合并窗口内尽量凑满一批再写入
+     */
+    private void consume() {
+        List<Notification> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (running) {
+            try {
+                Notification first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+                while (batch.size() < MAX_BATCH_SIZE) {
+                    queue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= MAX_BATCH_SIZE || wait <= 0) {
+                        break;
+                    }
+                    Notification next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // 写完手上的这一批后退出
+                running = false;
+                Thread.currentThread().interrupt();
+            }
+
+            if (!batch.isEmpty()) {
+                persist(batch);
+                batch.clear();
+            }
+        }
+    }
+}
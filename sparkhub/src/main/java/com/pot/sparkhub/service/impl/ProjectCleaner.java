@@ -1,5 +1,6 @@
 package com.pot.sparkhub.service.impl;
 
+import com.pot.sparkhub.cache.CommentCache;
 import com.pot.sparkhub.entity.ProjectReward;
 import com.pot.sparkhub.mapper.*;
 import com.pot.sparkhub.service.FileService;
@@ -16,6 +17,9 @@ public class ProjectCleaner {
     @Autowired private ProjectMapper projectMapper;
     @Autowired private RewardMapper rewardMapper;
     @Autowired private FileService fileService;
+    @Autowired private ProjectSearchIndex projectSearchIndex;
+    @Autowired private CommentCache commentCache;
+    @Autowired private RewardStockReserver rewardStockReserver;
 
     /**
      * [核心方法]
@@ -49,10 +53,17 @@ public class ProjectCleaner {
         // 2.1 删除项目实体 (必须先于依赖它的表删除)
         projectMapper.deleteProjectById(projectId);
 
-        // 2.2 删除回报档位
+        // 2.2 删除回报档位 (及其名额计数器, 事务提交后)
         rewardMapper.deleteByProjectId(projectId);
+        rewardStockReserver.invalidate(rewards);
 
         // 2.3 删除项目关联的图片
         fileService.deleteFile(coverImageUrl);
+
+        // --- 3. 从搜索索引中删除 (事务提交后重新索引: 项目已不存在, 即删除) ---
+        projectSearchIndex.reindex(projectId);
+
+        // --- 4. 删除评论缓存 (事务提交后) ---
+        commentCache.evict(projectId);
     }
 }
\ No newline at end of file
@@ -1,5 +1,9 @@
 package com.pot.sparkhub.service.impl;
 
+import com.pot.sparkhub.cache.CommentCache;
+import com.pot.sparkhub.cache.CommentLikerIndex;
+import com.pot.sparkhub.common.Cursor;
+import com.pot.sparkhub.common.CursorPage;
 import com.pot.sparkhub.dto.CommentCreateDTO;
 import com.pot.sparkhub.dto.CommentDetailDTO;
 import com.pot.sparkhub.entity.Project;
@@ -30,6 +34,16 @@ public class ProjectCommentServiceImpl implements ProjectCommentService {
 
     @Autowired
     private NotificationService notificationService;
+
+    @Autowired
+    private CommentCache commentCache;
+
+    @Autowired
+    private CommentLikerIndex likerIndex; // 已写回数据库的点赞 (本地位图)
+
+    @Autowired
+    private CommentLikeBuffer likeBuffer; // 尚未写回数据库的点赞
+
     // 获取当前登录的用户 (辅助方法)
     private User getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -74,11 +88,10 @@ public class ProjectCommentServiceImpl implements ProjectCommentService {
                     .map(CommentDetailDTO::getId)
                     .collect(Collectors.toList());
 
-            // 3.2 批量查询数据库
+            // 3.2 查询点赞位图, 再叠加尚未写回的点赞/取消
             if (!commentIds.isEmpty()) {
-                likedCommentIds = new HashSet<>(
-                        commentMapper.findLikedCommentIdsByUser(currentUser.getId(), commentIds)
-                );
+                likedCommentIds = likerIndex.likedBy(currentUser.getId(), commentIds);
+                applyPendingLikes(currentUser.getId(), commentIds, likedCommentIds);
             } else {
                 likedCommentIds = Collections.emptySet();
             }
@@ -124,6 +137,83 @@ public class ProjectCommentServiceImpl implements ProjectCommentService {
         return topLevelComments;
     }
 
+    /**
+     * 顶级评论 (游标分页): 优先从评论缓存取一页, 缓存不可用时查询数据库; 点赞状态只查本页的评论
+     */
+    @Override
+    public CursorPage<CommentDetailDTO> getTopLevelComments(Long projectId, String sortBy, String after, int pageSize) {
+        pageSize = CursorPage.clampPageSize(pageSize);
+        boolean hot = Objects.equals(sortBy, "hotness");
+
+        // 1. 解析游标 (游标值为排序字段: 点赞数 或 创建时间)
+        Cursor cursor = Cursor.decode(after);
+
+        // 2. 多查一条, 用于判断是否还有下一页 (缓存与数据库的排序和游标一致, 可以混用)
+        List<CommentDetailDTO> rows = commentCache.findTopLevel(projectId, hot, cursor, pageSize + 1);
+        if (rows == null) {
+            rows = commentMapper.findTopLevelAfter(
+                    projectId,
+                    hot ? "hotness" : "time",
+                    cursor != null && !hot ? cursor.asTime() : null,
+                    cursor != null && hot ? cursor.asLong() : null,
+                    cursor != null ? cursor.getId() : null,
+                    pageSize + 1
+            );
+        }
+        markLiked(rows);
+        return CursorPage.of(rows, pageSize, c -> Cursor.encode(hot ? c.getLikeCount() : c.getCreateTime(), c.getId()));
+    }
+
+    /**
+     * 一条评论的直接回复 (游标分页, 展开时才加载)
+     */
+    @Override
+    public CursorPage<CommentDetailDTO> getReplies(Long projectId, Long commentId, String after, int pageSize) {
+        pageSize = CursorPage.clampPageSize(pageSize);
+        Cursor cursor = Cursor.decode(after);
+        List<CommentDetailDTO> rows = commentCache.findReplies(projectId, commentId, cursor, pageSize + 1);
+        if (rows == null) {
+            rows = commentMapper.findRepliesAfter(
+                    projectId,
+                    commentId,
+                    cursor != null ? cursor.asTime() : null,
+                    cursor != null ? cursor.getId() : null,
+                    pageSize + 1
+            );
+        }
+        markLiked(rows);
+        return CursorPage.of(rows, pageSize, c -> Cursor.encode(c.getCreateTime(), c.getId()));
+    }
+
+    /**
+     * 设置当前用户对这些评论的点赞状态 (未登录时全部为 false)
+     */
+    private void markLiked(List<CommentDetailDTO> comments) {
+        User currentUser = getAuthenticatedUser();
+        if (currentUser == null || comments.isEmpty()) {
+            return;
+        }
+        List<Long> commentIds = comments.stream().map(CommentDetailDTO::getId).collect(Collectors.toList());
+        Set<Long> likedCommentIds = likerIndex.likedBy(currentUser.getId(), commentIds);
+        applyPendingLikes(currentUser.getId(), commentIds, likedCommentIds);
+        for (CommentDetailDTO comment : comments) {
+            comment.setLiked(likedCommentIds.contains(comment.getId()));
+        }
+    }
+
+    /**
+     * 叠加 Redis 中尚未写回数据库的点赞状态 (用户刚点赞/取消后立即刷新也能看到)
+     */
+    private void applyPendingLikes(Long userId, List<Long> commentIds, Set<Long> likedCommentIds) {
+        likeBuffer.pendingStates(userId, commentIds).forEach((commentId, liked) -> {
+            if (liked) {
+                likedCommentIds.add(commentId);
+            } else {
+                likedCommentIds.remove(commentId);
+            }
+        });
+    }
+
     /**
      * 创建评论 (保存 parentId)
      */
@@ -144,23 +234,31 @@ public class ProjectCommentServiceImpl implements ProjectCommentService {
         comment.setProjectId(projectId);
         comment.setUserId(user.getId());
         comment.setContent(createDTO.getContent());
-        comment.setCreateTime(LocalDateTime.now());
+        comment.setCreateTime(LocalDateTime.now().withNano(0)); // 与数据库 (秒) 和评论缓存的精度一致
         comment.setParentId(createDTO.getParentId());
 
         // 5. 插入数据库
         commentMapper.insert(comment); // ID 会被回填
 
+        // 5.1 回复: 父评论的回复数 +1
+        if (createDTO.getParentId() != null) {
+            commentMapper.incrementReplyCount(createDTO.getParentId());
+        }
+
         // 6. 发送通知
         String linkUrl = "/project/" + projectId + "#comment-" + comment.getId();
 
         if (createDTO.getParentId() == null) {
             // --- 6A. 顶级评论 ---
             // 通知项目发起者 (前提：不是自己评论自己的项目)
+            // (同一项目的评论合并为一条通知: "用户 'xx' 等 N 人评论了您的项目 'yy'。")
             if (!project.getCreatorId().equals(user.getId())) {
-                notificationService.sendUserNotification(
+                notificationService.sendAggregatedUserNotification(
                         project.getCreatorId(), // (接收者：项目发起者)
                         "NEW_COMMENT_ON_PROJECT",
+                        "project:" + projectId,
                         String.format("用户 '%s' 评论了您的项目 '%s'。", user.getUsername(), project.getTitle()),
+                        String.format("用户 '%s' 等 {count} 人评论了您的项目 '%s'。", user.getUsername(), project.getTitle()),
                         linkUrl,
                         user.getId() // (发送者：评论者)
                 );
@@ -194,8 +292,12 @@ public class ProjectCommentServiceImpl implements ProjectCommentService {
         detailDTO.setParentId(comment.getParentId());
         detailDTO.setReplies(new ArrayList<>());
         detailDTO.setLikeCount(0);
+        detailDTO.setReplyCount(0);
         detailDTO.setLiked(false);
 
+        // 8. 事务提交后加入评论缓存
+        commentCache.addComment(projectId, detailDTO);
+
         return detailDTO;
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.pot.sparkhub.service.impl;
+
+import com.pot.sparkhub.dto.ProjectDetailDTO;
+import com.pot.sparkhub.dto.ProjectUserFlagsDTO;
+import com.pot.sparkhub.mapper.ProjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 项目详情的缓存读取 (独立 Bean, 保证 @Cacheable 通过代理调用生效)
+ * - "project" 缓存: 与用户无关的共享详情, 每个项目一份
+ * - "projectUserFlags" 缓存: 每个用户对每个项目的收藏/支持标记, 在请求时叠加到详情上
+ */
+@Component
+public class ProjectDetailLoader {
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * 共享的项目详情 (项目、回报、发起者、分类、支持者)
+     * 项目不存在时返回 null, 且不缓存 (避免 ID 之后被使用时读到旧的空值)
+     */
+    @Cacheable(value = "project", key = "#id", unless = "#result == null")
+    public ProjectDetailDTO loadSharedDetail(Long id) {
+        return projectMapper.findProjectDetailById(id);
+    }
+
+    /**
+     * 清除共享的项目详情缓存 (用于不经过 ProjectService 的状态变化, 例如定时结束众筹)
+     */
+    @CacheEvict(value = "project", key = "#id")
+    public void evictSharedDetail(Long id) {
+        // 仅用于触发 @CacheEvict
+    }
+
+    /**
+     * 用户对项目的收藏/支持标记 (一次查询得到两个标记)
+     */
+    @Cacheable(value = "projectUserFlags", key = "#projectId + ':' + #userId")
+    public ProjectUserFlagsDTO loadUserFlags(Long projectId, Long userId) {
+        return projectMapper.findUserFlags(projectId, userId);
+    }
+
+    /**
+     * 收藏/取消收藏、支付成功后, 清除该用户的标记缓存
+     * 在事务中调用时, 立即清除一次, 事务提交后再清除一次
+     * (提交前读到旧标记的请求可能把旧值重新放入缓存)
+     */
+    public void evictUserFlags(Long projectId, Long userId) {
+        Cache cache = cacheManager.getCache("projectUserFlags");
+        if (cache == null) {
+            return;
+        }
+        String key = projectId + ":" + userId;
+        cache.evict(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.evict(key);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.pot.sparkhub.service.impl;
+
+import com.pot.sparkhub.cache.ProjectListCache;
+import com.pot.sparkhub.entity.Project;
+import com.pot.sparkhub.mapper.ProjectMapper;
+import com.pot.sparkhub.service.NotificationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 结束到期的众筹项目 (独立 Bean, 保证每一批都通过代理调用, 在各自的短事务中执行)
+ */
+@Component
+public class ProjectExpirer {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectExpirer.class);
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private ProjectListCache projectListCache;
+
+    @Autowired
+    private ProjectSearchIndex projectSearchIndex;
+
+    @Autowired
+    private ProjectDetailLoader projectDetailLoader;
+
+    // 项目状态
+    private static final Integer STATUS_SUCCESSFUL = 2; // 众筹成功
+    private static final Integer STATUS_FAILED = 3;     // 众筹失败
+
+    /**
+     * 结束一批已到截止时间的 "众筹中" 项目
+     * @param now       当前时间
+     * @param batchSize 本批最多处理的数量
+     * @return 本批结束的项目 (status 为新状态)
+     */
+    @Transactional
+    public List<Project> expireBatch(LocalDateTime now, int batchSize) {
+        // 1. 锁定本批到期项目 (走 idx_project_status_end, 只读取判断需要的字段)
+        //    与 executePayment 的 findProjectByIdForUpdate 互斥, 金额不会在判断后改变
+        List<Project> expired = projectMapper.findExpiredActiveForUpdate(now, batchSize);
+        if (expired.isEmpty()) {
+            return expired;
+        }
+
+        // 2. 一条 UPDATE 按金额是否达标设置成功/失败
+        List<Long> ids = expired.stream().map(Project::getId).toList();
+        projectMapper.finishProjects(ids);
+
+        // 3. 与 SQL 中相同的规则, 得到每个项目的新状态
+        for (Project project : expired) {
+            project.setStatus(project.getCurrentAmount().compareTo(project.getGoalAmount()) >= 0
+                    ? STATUS_SUCCESSFUL : STATUS_FAILED);
+            projectListCache.invalidate(project.getCategoryId()); // 项目离开 "众筹中" 列表 (事务提交后生效)
+            projectSearchIndex.reindex(project.getId());          // 不再出现在搜索结果中
+        }
+
+        // 4. 事务提交后: 清除详情缓存, 发送通知 (不占用本批的事务和行锁)
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (Project project : expired) {
+                    try {
+                        projectDetailLoader.evictSharedDetail(project.getId());
+                        notifyCreator(project);
+                        notifyBackers(project);
+                    } catch (Exception e) {
+                        // 状态已提交, 通知失败只记录日志, 不影响其他项目
+                        log.warn("项目 ID: {} 结束后的通知发送失败: {}", project.getId(), e.getMessage());
+                    }
+                }
+            }
+        });
+        return expired;
+    }
+
+    /**
+     * 通知所有支持者众筹结果 (批量写入在通知服务的后台线程中完成)
+     */
+    private void notifyBackers(Project project) {
+        List<Long> backerIds = projectMapper.findBackerIdsByProjectId(project.getId());
+        String notificationType;
+        String notificationContent;
+        if (STATUS_SUCCESSFUL.equals(project.getStatus())) {
+            notificationType = "BACKED_PROJECT_FUNDED";
+            notificationContent = String.format("您支持的项目 '%s' 已成功达成众筹目标！", project.getTitle());
+        } else {
+            notificationType = "BACKED_PROJECT_FAILED";
+            notificationContent = String.format("很遗憾，您支持的项目 '%s' 未能在截止日期前达成目标。", project.getTitle());
+        }
+        notificationService.sendSystemNotificationToAll(
+                backerIds,
+                notificationType,
+                notificationContent,
+                "/project/" + project.getId()
+        );
+    }
+
+    /**
+     * 通知项目发起者众筹结果
+     */
+    private void notifyCreator(Project project) {
+        String notificationType;
+        String notificationContent;
+        if (STATUS_SUCCESSFUL.equals(project.getStatus())) {
+            // --- 成功 ---
+            notificationType = "PROJECT_FUNDED";
+            notificationContent = String.format("太棒了！您的项目 '%s' 已成功达成众筹目标！", project.getTitle());
+        } else {
+            // --- 失败 ---
+            notificationType = "PROJECT_FAILED";
+            notificationContent = String.format("很遗憾，您的项目 '%s' 未能在截止日期前达成目标。", project.getTitle());
+        }
+        notificationService.sendSystemNotification(
+                project.getCreatorId(),
+                notificationType,
+                notificationContent,
+                "/project/" + project.getId() // 统一跳转到项目详情页
+        );
+    }
+}
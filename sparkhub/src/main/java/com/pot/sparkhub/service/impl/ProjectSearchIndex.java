@@ -0,0 +1,375 @@
+package com.pot.sparkhub.service.impl;
+
+import com.pot.sparkhub.entity.Project;
+import com.pot.sparkhub.mapper.ProjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 项目全文检索 (进程内 Lucene 倒排索引, 存放在本地磁盘)
+ *
+ * 1. 启动后在后台线程中从 project 表全量重建索引 (按 id 分批读取); 重建完成前搜索沿用磁盘上已有的索引
+ * 2. 项目创建/修改/审核/删除后, 在事务提交后先更新本节点的索引, 再通过 Redis 频道 {@link #REINDEX_CHANNEL}
+ *    通知其他节点 (消息带本节点标识, 收到自己发出的消息时忽略); 每个节点从数据库读取该项目并更新自己的索引
+ * 3. 搜索只返回按相关度排序的项目 ID, 摘要信息仍从数据库读取
+ * 4. 丢失通知的节点在重启 (全量重建) 前可能搜到旧内容; 摘要总是从数据库读取, 已删除的项目不会出现在结果中
+ */
+@Component
+public class ProjectSearchIndex implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectSearchIndex.class);
+
+    // 文档字段
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_CATEGORY = "categoryId";
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_DESCRIPTION = "description";
+
+    // 标题命中的权重高于详情
+    private static final Map<String, Float> FIELD_BOOSTS = Map.of(FIELD_TITLE, 3.0f, FIELD_DESCRIPTION, 1.0f);
+
+    // 全量重建时每批读取的项目数
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    // 最多可翻到的结果数 (页码 x 每页数量), 更深的分页需要取出过多的命中
+    public static final int MAX_RESULT_WINDOW = 10000;
+
+    // 集群内广播索引更新的频道 (消息格式: nodeId|项目ID)
+    public static final String REINDEX_CHANNEL = "sparkhub:search:reindex";
+    private static final String SEPARATOR = "|";
+
+    // 本节点标识, 用于忽略自己发出的消息
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    // 索引目录
+    @Value("${sparkhub.search.index-path:./data/search-index}")
+    private String indexPath;
+
+    // CJK 二元分词: 无需词典, 对中文标题和英文单词都有效
+    private final Analyzer analyzer = new CJKAnalyzer();
+
+    private volatile FSDirectory directory;
+    private volatile IndexWriter writer;
+    private volatile SearcherManager searcherManager;
+
+    // 全量重建进行中: 增量更新不刷新搜索视图 (否则会看到 deleteAll 之后只重建了一部分的索引)
+    private volatile boolean rebuilding;
+
+    /**
+     * 搜索结果 (当前页的项目 ID, 按相关度排序) 和命中总数
+     */
+    public record Hits(List<Long> ids, long total) {
+    }
+
+    @PostConstruct
+    public void init() {
+        open();
+        listenerContainer.addMessageListener(this, new ChannelTopic(REINDEX_CHANNEL));
+    }
+
+    private void open() {
+        try {
+            directory = FSDirectory.open(Path.of(indexPath));
+            writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+            searcherManager = new SearcherManager(writer, null);
+        } catch (IOException e) {
+            // 索引不可用时只影响搜索, 不影响应用启动
+            log.warn("搜索索引打开失败 ({}), 搜索功能不可用: {}", indexPath, e.getMessage());
+            writer = null;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            if (searcherManager != null) {
+                searcherManager.close();
+            }
+            if (writer != null) {
+                writer.close(); // 关闭时会提交
+            }
+            if (directory != null) {
+                directory.close();
+            }
+        } catch (IOException e) {
+            log.warn("搜索索引关闭失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 启动完成后在后台线程中全量重建索引, 不推迟应用就绪
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        Thread thread = new Thread(this::rebuild, "search-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 全量重建索引 (数据库不可用时保留磁盘上已有的索引)
+     * 每批的读取和写入与增量更新互斥: 增量更新要么在读取这一批之前, 要么在写入之后, 不会被旧数据覆盖
+     */
+    public void rebuild() {
+        if (writer == null) {
+            return;
+        }
+        rebuilding = true;
+        try {
+            long start = System.currentTimeMillis();
+            writer.deleteAll();
+            long afterId = 0;
+            int count = 0;
+            List<Project> batch;
+            do {
+                synchronized (this) {
+                    batch = projectMapper.findProjectsForIndex(afterId, REBUILD_BATCH_SIZE);
+                    for (Project project : batch) {
+                        writer.updateDocument(new Term(FIELD_ID, String.valueOf(project.getId())), toDocument(project));
+                        afterId = project.getId();
+                    }
+                }
+                count += batch.size();
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+            writer.commit();
+            rebuilding = false;
+            searcherManager.maybeRefresh();
+            log.info("搜索索引重建完成, 共 {} 个项目, 耗时 {} ms", count, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("搜索索引重建失败, 沿用磁盘上已有的索引: {}", e.getMessage());
+            try {
+                // 丢弃未提交的删除 (rollback 会关闭 writer), 再重新打开上次提交的索引
+                searcherManager.close();
+                writer.rollback();
+                directory.close();
+            } catch (IOException ignored) {
+                // 下面重新打开
+            }
+            open();
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    /**
+     * 重新索引一个项目 (事务提交后执行, 读取的是已提交的数据; 项目已删除时从索引中删除)
+     */
+    public void reindex(Long projectId) {
+        afterCommit(() -> {
+            applyLocal(projectId);
+            broadcast(projectId);
+        });
+    }
+
+    /**
+     * 收到其他节点的广播: 更新本节点的索引 (自己发出的消息已在本地更新过)
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.indexOf(SEPARATOR);
+        if (sep < 0 || nodeId.equals(body.substring(0, sep))) {
+            return; // 格式错误, 或者是自己发出的消息
+        }
+        try {
+            applyLocal(Long.valueOf(body.substring(sep + 1)));
+        } catch (Exception e) {
+            log.warn("搜索索引更新失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按相关度搜索
+     * @param keyword  用户输入的关键词 (按字面匹配, 不支持查询语法)
+     * @param status   只返回该状态的项目
+     * @param pageNum  页码
+     * @param pageSize 每页数量
+     */
+    public Hits search(String keyword, Integer status, int pageNum, int pageSize) {
+        if (writer == null) {
+            throw new RuntimeException("搜索服务暂不可用");
+        }
+
+        // 1. 构造查询: 关键词 (标题 + 详情) AND 状态过滤 (不参与打分)
+        Query textQuery;
+        try {
+            MultiFieldQueryParser parser = new MultiFieldQueryParser(
+                    new String[]{FIELD_TITLE, FIELD_DESCRIPTION}, analyzer, FIELD_BOOSTS);
+            parser.setDefaultOperator(QueryParser.Operator.AND);
+            textQuery = parser.parse(QueryParser.escape(keyword));
+        } catch (Exception e) {
+            throw new RuntimeException("无效的搜索关键词");
+        }
+        Query query = new BooleanQuery.Builder()
+                .add(textQuery, BooleanClause.Occur.MUST)
+                .add(new TermQuery(new Term(FIELD_STATUS, String.valueOf(status))), BooleanClause.Occur.FILTER)
+                .build();
+
+        // 2. 取前 pageNum * pageSize 条 (不超过 MAX_RESULT_WINDOW), 截取当前页
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            int size = Math.max(1, pageSize);
+            int from = (int) Math.min((long) (Math.max(pageNum, 1) - 1) * size, MAX_RESULT_WINDOW);
+            TopDocs topDocs = searcher.search(query, from + size);
+
+            List<Long> ids = new ArrayList<>();
+            ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+            for (int i = from; i < scoreDocs.length; i++) {
+                ids.add(Long.valueOf(searcher.storedFields().document(scoreDocs[i].doc).get(FIELD_ID)));
+            }
+            return new Hits(ids, topDocs.totalHits.value);
+        } catch (IOException e) {
+            throw new RuntimeException("搜索失败: " + e.getMessage());
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException ignored) {
+                    // 释放失败不影响结果
+                }
+            }
+        }
+    }
+
+    /**
+     * 定时提交 (增量更新只做近实时刷新, 这里负责落盘)
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void commit() {
+        if (writer == null || !writer.hasUncommittedChanges()) {
+            return;
+        }
+        try {
+            writer.commit();
+        } catch (IOException e) {
+            log.warn("搜索索引提交失败: {}", e.getMessage());
+        }
+    }
+
+    // --- 内部方法 ---
+
+    private static Document toDocument(Project project) {
+        Document doc = new Document();
+        doc.add(new StringField(FIELD_ID, String.valueOf(project.getId()), Field.Store.YES));
+        doc.add(new StringField(FIELD_STATUS, String.valueOf(project.getStatus()), Field.Store.NO));
+        doc.add(new StringField(FIELD_CATEGORY, String.valueOf(project.getCategoryId()), Field.Store.NO));
+        doc.add(new TextField(FIELD_TITLE, nullToEmpty(project.getTitle()), Field.Store.NO));
+        doc.add(new TextField(FIELD_DESCRIPTION, nullToEmpty(project.getDescription()), Field.Store.NO));
+        return doc;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * 从数据库读取项目并更新本节点的索引, 并刷新搜索视图 (全量重建期间不刷新)
+     */
+    private synchronized void applyLocal(Long projectId) throws IOException {
+        if (writer == null) {
+            return;
+        }
+        Project project = projectMapper.findProjectById(projectId);
+        if (project == null) {
+            writer.deleteDocuments(new Term(FIELD_ID, String.valueOf(projectId)));
+        } else {
+            writer.updateDocument(new Term(FIELD_ID, String.valueOf(projectId)), toDocument(project));
+        }
+        if (!rebuilding) {
+            searcherManager.maybeRefresh();
+        }
+    }
+
+    /**
+     * 通知其他节点更新索引 (广播失败时其他节点在重建后修正)
+     */
+    private void broadcast(Long projectId) {
+        try {
+            redisTemplate.convertAndSend(REINDEX_CHANNEL, nodeId + SEPARATOR + projectId);
+        } catch (Exception e) {
+            log.warn("搜索索引更新广播失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 事务提交后执行 (索引失败只记录日志, 下次重建时修正)
+     */
+    private void afterCommit(IndexUpdate update) {
+        Runnable action = () -> {
+            try {
+                update.apply();
+            } catch (Exception e) {
+                log.warn("搜索索引更新失败: {}", e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexUpdate {
+        void apply() throws IOException;
+    }
+}
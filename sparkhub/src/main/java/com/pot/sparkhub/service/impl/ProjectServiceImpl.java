@@ -1,11 +1,17 @@
 package com.pot.sparkhub.service.impl;
 
+import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
+import com.pot.sparkhub.cache.ProjectListCache;
+import com.pot.sparkhub.common.Cursor;
+import com.pot.sparkhub.common.CursorPage;
+import com.pot.sparkhub.common.ProjectSort;
 import com.pot.sparkhub.dto.ProjectCreateDTO;
 import com.pot.sparkhub.dto.ProjectDetailDTO;
 import com.pot.sparkhub.dto.ProjectSummaryDTO;
 import com.pot.sparkhub.dto.ProjectUpdateDTO;
+import com.pot.sparkhub.dto.ProjectUserFlagsDTO;
 import com.pot.sparkhub.entity.Project;
 import com.pot.sparkhub.entity.ProjectReward;
 import com.pot.sparkhub.entity.User;
@@ -13,10 +19,9 @@ import com.pot.sparkhub.mapper.ProjectMapper;
 import com.pot.sparkhub.mapper.RewardMapper;
 import com.pot.sparkhub.service.NotificationService;
 import com.pot.sparkhub.service.ProjectService;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -27,6 +32,9 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,6 +48,14 @@ public class ProjectServiceImpl implements ProjectService {
     private NotificationService notificationService;
     @Autowired
     private ProjectCleaner projectCleaner;
+    @Autowired
+    private ProjectDetailLoader projectDetailLoader;
+    @Autowired
+    private ProjectListCache projectListCache;
+    @Autowired
+    private ProjectSearchIndex projectSearchIndex;
+    @Autowired
+    private RewardStockReserver rewardStockReserver;
 
     // 状态: 1 = 众筹中
     private static final Integer STATUS_ACTIVE = 1;
@@ -49,29 +65,113 @@ public class ProjectServiceImpl implements ProjectService {
     private static final Integer STATUS_FAILED = 3;
 
     @Override
-    @Cacheable(value = "projectList", key = "'public:' + #pageNum + ':' + #pageSize")
-    public PageInfo<ProjectSummaryDTO> getPublicProjects(int pageNum, int pageSize) {
-        // 1. 启动分页 (PageHelper)
-        PageHelper.startPage(pageNum, pageSize);
+    public PageInfo<ProjectSummaryDTO> getPublicProjects(Long categoryId, ProjectSort sort, int pageNum, int pageSize) {
+        // 先限制分页参数, 再生成缓存 key (否则每个不同的原始参数都会产生一个缓存条目)
+        int size = CursorPage.clampPageSize(pageSize);
+        int page = Math.max(1, pageNum);
+
+        // 列表缓存按 (分类, 排序, 分页) 区分, 按分类分代管理 (见 ProjectListCache), 未命中时才查询
+        String key = "public:" + sort.getParam() + ":" + page + ":" + size;
+        return projectListCache.get(categoryId, sort, key, () -> {
+            // 1. 启动分页 (PageHelper)
+            PageHelper.startPage(page, size);
+
+            // 2. 查询 (只查询 "众筹中" 的项目, 分类筛选和排序在数据库中完成)
+            List<ProjectSummaryDTO> list = projectMapper.findProjectSummaries(STATUS_ACTIVE, categoryId, sort);
+
+            // 3. PageHelper 会返回一个 PageInfo 对象, 包含列表和所有分页信息
+            return new PageInfo<>(list);
+        });
+    }
 
-        // 2. 查询 (只查询 "众筹中" 的项目)
-        List<ProjectSummaryDTO> list = projectMapper.findProjectSummaries(STATUS_ACTIVE);
+    @Override
+    public CursorPage<ProjectSummaryDTO> getPublicProjectsAfter(Long categoryId, ProjectSort sort, String after, int pageSize) {
+        int size = CursorPage.clampPageSize(pageSize);
+        String key = "public:" + sort.getParam() + ":after:" + after + ":" + size;
+        return projectListCache.get(categoryId, sort, key,
+                () -> findSummariesAfter(STATUS_ACTIVE, categoryId, sort, after, size));
+    }
 
-        // 3. PageHelper 会返回一个 PageInfo 对象, 包含列表和所有分页信息
-        return new PageInfo<>(list);
+    /**
+     * (辅助方法) 按 (排序字段, id) 游标查询一页
+     * 多查一条用于判断 hasMore, 代替 PageHelper 的 COUNT(*)
+     */
+    private CursorPage<ProjectSummaryDTO> findSummariesAfter(Integer status, Long categoryId, ProjectSort sort,
+                                                             String after, int pageSize) {
+        pageSize = CursorPage.clampPageSize(pageSize);
+
+        // 1. 解析游标 (第一页为 null), 游标中的值类型取决于排序字段
+        Cursor cursor = Cursor.decode(after);
+        boolean byTime = sort == ProjectSort.NEWEST || sort == ProjectSort.ENDING_SOON;
+        LocalDateTime afterTime = null;
+        BigDecimal afterAmount = null;
+        if (cursor != null) {
+            try {
+                if (byTime) {
+                    afterTime = cursor.asTime();
+                } else {
+                    afterAmount = cursor.asDecimal();
+                }
+            } catch (RuntimeException e) {
+                throw new RuntimeException("无效的分页游标"); // 游标与排序方式不匹配
+            }
+        }
+
+        // 2. seek 查询
+        List<ProjectSummaryDTO> rows = projectMapper.findProjectSummariesAfter(
+                status,
+                categoryId,
+                sort,
+                afterTime,
+                afterAmount,
+                cursor == null ? null : cursor.getId(),
+                pageSize + 1
+        );
+
+        // 3. 用本页最后一条生成下一页游标
+        return CursorPage.of(rows, pageSize, sort::cursorOf);
     }
 
     @Override
-    @Cacheable(value = "project", key = "#id")
-    public ProjectDetailDTO getProjectDetail(Long id, Long currentUserId) { // <-- 1. 修改签名
+    public PageInfo<ProjectSummaryDTO> searchProjects(String keyword, int pageNum, int pageSize) {
+        if (keyword == null || keyword.isBlank()) {
+            throw new RuntimeException("搜索关键词不能为空");
+        }
+        // 每页 1 ~ 100 条, 页码不超过搜索的最大结果窗口
+        pageSize = CursorPage.clampPageSize(pageSize);
+        pageNum = Math.max(1, Math.min(pageNum, ProjectSearchIndex.MAX_RESULT_WINDOW / pageSize));
+
+        // 1. 在搜索索引中查出当前页的项目 ID (已按相关度排序, 只搜 "众筹中" 的项目)
+        ProjectSearchIndex.Hits hits = projectSearchIndex.search(keyword.trim(), STATUS_ACTIVE, pageNum, pageSize);
+
+        // 2. 按 ID 批量读取摘要, 并恢复相关度顺序
+        Page<ProjectSummaryDTO> page = new Page<>(pageNum, pageSize);
+        page.setTotal(hits.total());
+        if (!hits.ids().isEmpty()) {
+            Map<Long, ProjectSummaryDTO> byId = projectMapper.findProjectSummariesByIds(hits.ids()).stream()
+                    .collect(Collectors.toMap(ProjectSummaryDTO::getId, Function.identity()));
+            hits.ids().stream()
+                    .map(byId::get)
+                    .filter(Objects::nonNull) // 索引尚未同步的已删除项目
+                    .forEach(page::add);
+        }
+        return new PageInfo<>(page);
+    }
+
+    @Override
+    public ProjectDetailDTO getProjectDetail(Long id, Long currentUserId) {
 
-        // 2. 将 currentUserId 传递给 Mapper
-        ProjectDetailDTO detail = projectMapper.findProjectDetailById(id, currentUserId);
+        // 1. 读取共享的项目详情 (缓存, 与用户无关)
+        ProjectDetailDTO shared = projectDetailLoader.loadSharedDetail(id);
 
-        if (detail == null) {
+        if (shared == null) {
             throw new RuntimeException("项目不存在 (ID: " + id + ")");
         }
 
+        // 2. 复制一份再叠加用户标记 (本地缓存中的对象是共享的, 不能直接修改)
+        ProjectDetailDTO detail = new ProjectDetailDTO();
+        BeanUtils.copyProperties(shared, detail);
+
         // 3. 安全检查
         // 公开接口不应返回 "审核中" 的项目,
         // 除非查看者是项目创建者本人 (currentUserId 匹配 creatorId) 或管理员
@@ -96,6 +196,16 @@ public class ProjectServiceImpl implements ProjectService {
         }
         // --- ----------------- ---
 
+        // 4. 叠加当前用户的收藏/支持标记 (单独缓存, 每个用户一份)
+        if (currentUserId != null) {
+            ProjectUserFlagsDTO flags = projectDetailLoader.loadUserFlags(id, currentUserId);
+            detail.setIsFavorite(flags.isFavorite());
+            detail.setIsBacked(flags.isBacked());
+        } else {
+            detail.setIsFavorite(false);
+            detail.setIsBacked(false);
+        }
+
         return detail;
     }
 
@@ -143,6 +253,7 @@ public class ProjectServiceImpl implements ProjectService {
         // 6. 插入 project 表 (MyBatis 会回填 ID)
         projectMapper.insertProject(project);
         Long newProjectId = project.getId(); // 获取新ID
+        projectSearchIndex.reindex(newProjectId); // 事务提交后加入搜索索引
 
         // 7. 检查并映射回报档位 DTOs -> Entities
         if (createDTO.getRewards() == null || createDTO.getRewards().isEmpty()) {
@@ -178,12 +289,7 @@ public class ProjectServiceImpl implements ProjectService {
     @Override
     @PreAuthorize("hasRole('ROLE_CREATOR') and @projectSecurity.isOwner(authentication, #id)")
     @Transactional // 开启事务
-    @Caching(evict = {
-            // 1. 精确清除项目详情缓存
-            @CacheEvict(value = "project", key = "#id"),
-            // 2. 范围清除项目列表缓存 (因为状态可能已改变)
-            @CacheEvict(value = "projectList", allEntries = true)
-    })
+    @CacheEvict(value = "project", key = "#id") // 精确清除项目详情缓存 (列表缓存在方法内换代)
     public Project updateProject(Long id, ProjectUpdateDTO updateDTO) {
         // 1. 安全检查 (由 @PreAuthorize 搞定)
 
@@ -211,6 +317,8 @@ public class ProjectServiceImpl implements ProjectService {
 
         // 6. 执行更新 (使用 ProjectMapper.xml 中的动态 UPDATE)
         projectMapper.updateProject(project);
+        projectSearchIndex.reindex(id); // 事务提交后更新搜索索引
+        // (修改前后都不是 "众筹中", 不在公开列表中, 无需使列表缓存失效)
 
         // 7. 更新回报档位 (删除旧的, 插入新的)
 
@@ -219,7 +327,8 @@ public class ProjectServiceImpl implements ProjectService {
             throw new RuntimeException("项目必须至少包含一个回报档位");
         }
 
-        // 7.2 删除旧的回报
+        // 7.2 删除旧的回报 (及其名额计数器, 事务提交后)
+        rewardStockReserver.invalidate(rewardMapper.findByProjectId(id));
         rewardMapper.deleteByProjectId(id);
 
         // 7.3 映射 DTOs -> Entities (复用 createProject 的逻辑)
@@ -271,18 +380,21 @@ public class ProjectServiceImpl implements ProjectService {
         PageHelper.startPage(pageNum, pageSize);
 
         // 2. 传入 status，由 Mapper 负责根据 status 是否为 null 来决定是否添加 WHERE 条件
-        List<ProjectSummaryDTO> list = projectMapper.findProjectSummaries(status);
+        List<ProjectSummaryDTO> list = projectMapper.findProjectSummaries(status, null, null);
 
         return new PageInfo<>(list);
     }
 
     @Override
     @PreAuthorize("hasRole('ROLE_ADMIN')") // 权限
-    @Caching(evict = {
-            // 审核通过/拒绝, 都会影响项目详情和列表
-            @CacheEvict(value = "project", key = "#id"),
-            @CacheEvict(value = "projectList", allEntries = true)
-    })
+    public CursorPage<ProjectSummaryDTO> getProjectsForAdminAfter(String after, int pageSize, Integer status) {
+        // status 为 null 时查询所有状态 (走 idx_project_create_time)
+        return findSummariesAfter(status, null, ProjectSort.NEWEST, after, pageSize);
+    }
+
+    @Override
+    @PreAuthorize("hasRole('ROLE_ADMIN')") // 权限
+    @CacheEvict(value = "project", key = "#id") // 审核通过/拒绝, 都会影响项目详情和列表 (列表缓存在方法内换代)
     public Project auditProject(Long id, Integer newStatus) {
         // 1. 验证项目
         Project project = projectMapper.findProjectById(id);
@@ -295,11 +407,17 @@ public class ProjectServiceImpl implements ProjectService {
             throw new RuntimeException("无效的状态码");
         }
 
+        // 公开列表只包含 "众筹中" 的项目: 只有进入或离开该状态时, 才需要使该分类的列表缓存失效
+        boolean listed = STATUS_ACTIVE.equals(project.getStatus()) || STATUS_ACTIVE.equals(newStatus);
+
         if (STATUS_FAILED.equals(newStatus)) {
             // --- 调用 ProjectCleaner 组件 ---
 
             // 1. 执行删除操作 (通过代理调用，@Transactional 生效)
             projectCleaner.deleteProjectAndRelatedData(id, project.getCoverImage());
+            if (listed) {
+                projectListCache.invalidate(project.getCategoryId());
+            }
 
             // 2. 发送通知
             notificationService.sendSystemNotification(
@@ -318,8 +436,12 @@ public class ProjectServiceImpl implements ProjectService {
         // 3. 更新状态
         project.setStatus(newStatus);
 
-        // 4. 持久化 (使用动态 UPDATE)
+        // 4. 持久化 (使用动态 UPDATE), 并使该分类的列表缓存换代
         projectMapper.updateProject(project);
+        projectSearchIndex.reindex(id);
+        if (listed) {
+            projectListCache.invalidate(project.getCategoryId());
+        }
 
         // 5. 发送通知
         if (STATUS_ACTIVE.equals(newStatus)) {
@@ -0,0 +1,258 @@
+package com.pot.sparkhub.service.impl;
+
+import com.pot.sparkhub.entity.ProjectReward;
+import com.pot.sparkhub.mapper.BackingMapper;
+import com.pot.sparkhub.mapper.RewardMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 回报名额的预占 (Redis)
+ *
+ * 1. 每个限量回报在 Redis 中有一个计数器: 可预占名额 = 数据库库存 - 未过期的待支付订单
+ *    创建订单时用 Lua 脚本原子地检查并扣减, 售罄的请求不会访问数据库
+ * 2. 每个预占在 ZSET 中记录一条 "订单ID:回报ID", 分数为过期时间
+ *    支付成功时移除 (名额转为数据库中的实际扣减), 过期未支付时由定时任务归还
+ * 3. 数据库仍是最终依据: 支付时用条件 UPDATE (stock > 0) 扣减, Redis 不可用时退化为只依赖数据库
+ * 4. 修改/删除回报 (库存变化) 后, 事务提交时删除计数器, 下次预占时按数据库重新初始化
+ */
+@Component
+public class RewardStockReserver {
+
+    private static final Logger log = LoggerFactory.getLogger(RewardStockReserver.class);
+
+    // 计数器: sparkhub:stock:reward:{rewardId} (不限量的回报为 UNLIMITED)
+    private static final String COUNTER_KEY_PREFIX = "sparkhub:stock:reward:";
+    // 预占记录 (ZSET)
+    private static final String HOLDS_KEY = "sparkhub:stock:holds";
+    private static final String UNLIMITED = "unlimited";
+    // 计数器的过期时间 (过期后按数据库重新初始化)
+    private static final Duration COUNTER_TTL = Duration.ofDays(1);
+    // 每次归还的预占数量上限
+    private static final int RELEASE_BATCH_SIZE = 500;
+
+    /**
+     * 预占: 返回 -1 = 计数器不存在, 0 = 售罄, 1 = 成功, 2 = 不限量
+     */
+    private static final DefaultRedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('GET', KEYS[1]) " +
+            "if not v then return -1 end " +
+            "if v == ARGV[1] then return 2 end " +
+            "if tonumber(v) <= 0 then return 0 end " +
+            "redis.call('DECR', KEYS[1]) " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 归还: 只有预占记录确实被移除时才 +1 (保证同一预占不会被归还两次)
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('ZREM', KEYS[2], ARGV[1]) == 0 then return 0 end " +
+            "local v = redis.call('GET', KEYS[1]) " +
+            "if v and v ~= ARGV[2] then redis.call('INCR', KEYS[1]) end " +
+            "return 1",
+            Long.class);
+
+    /**
+     * 撤销预占 (订单未创建成功): 计数器已过期则忽略 (重新初始化时以数据库为准)
+     */
+    private static final DefaultRedisScript<Long> RESTORE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "return redis.call('INCR', KEYS[1])",
+            Long.class);
+
+    /**
+     * 预占结果
+     */
+    public enum Reservation {
+        SOLD_OUT,    // 已售罄
+        RESERVED,    // 已预占一个名额
+        NOT_TRACKED  // 不限量 / 回报不存在 / Redis 不可用 (由数据库把关)
+    }
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RewardMapper rewardMapper;
+
+    @Autowired
+    private BackingMapper backingMapper;
+
+    // 待支付订单保留名额的时长 (毫秒)
+    @Value("${sparkhub.backing.reservation-ttl:900000}")
+    private long reservationTtl;
+
+    /**
+     * 预占一个名额 (在 createBacking 的事务中调用)
+     * 事务回滚时自动归还
+     */
+    public Reservation reserve(Long rewardId) {
+        String counterKey = COUNTER_KEY_PREFIX + rewardId;
+        Long result;
+        try {
+            // 1. 尝试预占
+            result = redisTemplate.execute(RESERVE_SCRIPT, List.of(counterKey), UNLIMITED);
+
+            // 2. 计数器不存在: 按数据库初始化后重试一次
+            if (result != null && result == -1) {
+                if (!seed(rewardId, counterKey)) {
+                    return Reservation.NOT_TRACKED; // 回报不存在
+                }
+                result = redisTemplate.execute(RESERVE_SCRIPT, List.of(counterKey), UNLIMITED);
+            }
+        } catch (Exception e) {
+            log.warn("回报名额预占失败, 由数据库把关 (回报ID: {}): {}", rewardId, e.getMessage());
+            return Reservation.NOT_TRACKED;
+        }
+
+        if (result == null || result == -1 || result == 2) {
+            return Reservation.NOT_TRACKED;
+        }
+        if (result == 0) {
+            return Reservation.SOLD_OUT;
+        }
+
+        // 3. 订单未能创建 (事务回滚) 时, 归还名额
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        restore(counterKey);
+                    }
+                }
+            });
+        }
+        return Reservation.RESERVED;
+    }
+
+    /**
+     * 记录订单对名额的预占 (订单插入后调用, 事务提交后生效)
+     */
+    public void hold(Long backingId, Long rewardId) {
+        String member = backingId + ":" + rewardId;
+        long expireAt = System.currentTimeMillis() + reservationTtl;
+        afterCommit(() -> redisTemplate.opsForZSet().add(HOLDS_KEY, member, expireAt), "预占记录写入失败");
+    }
+
+    /**
+     * 支付成功: 预占转为数据库扣减, 只移除预占记录 (不归还名额, 事务提交后生效)
+     */
+    public void consume(Long backingId, Long rewardId) {
+        String member = backingId + ":" + rewardId;
+        afterCommit(() -> redisTemplate.opsForZSet().remove(HOLDS_KEY, member), "预占记录移除失败");
+    }
+
+    /**
+     * 订单取消/过期: 归还名额 (事务提交后生效)
+     */
+    public void release(Long backingId, Long rewardId) {
+        afterCommit(() -> releaseNow(backingId + ":" + rewardId), "名额归还失败");
+    }
+
+    /**
+     * 回报被修改或删除: 删除计数器 (事务提交后生效; 下次预占时按数据库重新初始化)
+     */
+    public void invalidate(List<ProjectReward> rewards) {
+        if (rewards.isEmpty()) {
+            return;
+        }
+        List<String> counterKeys = rewards.stream().map(reward -> COUNTER_KEY_PREFIX + reward.getId()).toList();
+        afterCommit(() -> redisTemplate.delete(counterKeys), "回报名额计数器删除失败");
+    }
+
+    /**
+     * 定时任务: 归还已过期的预占
+     * 订单本身可能仍为 "待支付" (等待 BackingScheduler 取消), 但已不能支付 (executePayment 拒绝超过保留期的订单)
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void releaseExpiredHolds() {
+        try {
+            Set<String> expired;
+            do {
+                expired = redisTemplate.opsForZSet().rangeByScore(
+                        HOLDS_KEY, 0, System.currentTimeMillis(), 0, RELEASE_BATCH_SIZE);
+                if (expired == null || expired.isEmpty()) {
+                    return;
+                }
+                for (String member : expired) {
+                    releaseNow(member);
+                }
+                log.info("定时任务：归还了 {} 个过期的回报名额预占。", expired.size());
+            } while (expired.size() == RELEASE_BATCH_SIZE);
+        } catch (Exception e) {
+            log.warn("定时任务：归还过期预占失败: {}", e.getMessage());
+        }
+    }
+
+    // --- 内部方法 ---
+
+    /**
+     * 按数据库初始化计数器 (库存 - 仍在保留期内的待支付订单)
+     * @return 回报是否存在
+     */
+    private boolean seed(Long rewardId, String counterKey) {
+        ProjectReward reward = rewardMapper.findById(rewardId);
+        if (reward == null) {
+            return false;
+        }
+        String value;
+        if (reward.getStock() == null) {
+            value = UNLIMITED;
+        } else {
+            int pending = backingMapper.countPendingByRewardSince(
+                    rewardId, LocalDateTime.now().minus(Duration.ofMillis(reservationTtl)));
+            value = String.valueOf(Math.max(reward.getStock() - pending, 0));
+        }
+        // NX: 并发初始化时以先写入的为准
+        redisTemplate.opsForValue().setIfAbsent(counterKey, value, COUNTER_TTL);
+        return true;
+    }
+
+    private void releaseNow(String member) {
+        String rewardId = member.substring(member.indexOf(':') + 1);
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(COUNTER_KEY_PREFIX + rewardId, HOLDS_KEY), member, UNLIMITED);
+    }
+
+    private void restore(String counterKey) {
+        try {
+            redisTemplate.execute(RESTORE_SCRIPT, List.of(counterKey));
+        } catch (Exception e) {
+            log.warn("名额归还失败 ({}): {}", counterKey, e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action, String failureMessage) {
+        Runnable safeAction = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.warn("{}: {}", failureMessage, e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    safeAction.run();
+                }
+            });
+        } else {
+            safeAction.run();
+        }
+    }
+}
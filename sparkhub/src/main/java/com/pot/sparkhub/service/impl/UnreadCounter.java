@@ -0,0 +1,143 @@
+package com.pot.sparkhub.service.impl;
+
+import com.pot.sparkhub.mapper.NotificationMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 每个用户的未读通知数 (Redis 计数器)
+ *
+ * 1. 读取: 计数器存在时直接返回; 不存在时从 MySQL COUNT 一次并写入
+ * 2. 写入通知后 +n, 标记已读后 -1, 全部已读后删除 (下次读取时重建)
+ *    只修改已存在的计数器: 不存在的计数器下次读取时会从数据库得到准确值
+ * 3. 计数器有过期时间 (增减不续期), 即使与数据库出现偏差, 最多持续一个过期周期
+ */
+@Component
+public class UnreadCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(UnreadCounter.class);
+
+    private static final String KEY_PREFIX = "sparkhub:notification:unread:";
+
+    // 过期后从数据库重建 (定期校准)
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    /**
+     * 批量增加: KEYS[i] += ARGV[i] (只修改已存在的计数器)
+     */
+    private static final DefaultRedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "for i, key in ipairs(KEYS) do " +
+            "  if redis.call('EXISTS', key) == 1 then redis.call('INCRBY', key, ARGV[i]) end " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    /**
+     * 减少 1 (只修改已存在的计数器, 不小于 0)
+     */
+    private static final DefaultRedisScript<Long> DECREMENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "local v = redis.call('DECR', KEYS[1]) " +
+            "if v < 0 then redis.call('SET', KEYS[1], 0, 'KEEPTTL') end " +
+            "return 0",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private NotificationMapper notificationMapper;
+
+    /**
+     * 读取未读数 (Redis 不可用时直接查询数据库)
+     */
+    public long get(Long recipientId) {
+        String key = KEY_PREFIX + recipientId;
+        try {
+            String cached = redisTemplate.opsForValue().get(key);
+            if (cached != null) {
+                return Long.parseLong(cached);
+            }
+        } catch (Exception e) {
+            log.warn("读取未读数失败, 查询数据库: {}", e.getMessage());
+            return notificationMapper.countUnreadByRecipientId(recipientId);
+        }
+
+        // 未命中: 从数据库重建 (NX: 并发重建时以先写入的为准)
+        long count = notificationMapper.countUnreadByRecipientId(recipientId);
+        try {
+            redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(count), TTL);
+        } catch (Exception e) {
+            log.warn("写入未读数失败: {}", e.getMessage());
+        }
+        return count;
+    }
+
+    /**
+     * 新通知写入后增加未读数 (一次脚本调用处理一批接收者)
+     * @param counts 接收者ID -> 新通知数量
+     */
+    public void increment(Map<Long, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(counts.size());
+        List<String> args = new ArrayList<>(counts.size());
+        counts.forEach((recipientId, count) -> {
+            keys.add(KEY_PREFIX + recipientId);
+            args.add(String.valueOf(count));
+        });
+        try {
+            redisTemplate.execute(INCREMENT_SCRIPT, keys, args.toArray());
+        } catch (Exception e) {
+            // 计数器可能偏小, 过期后自动校准
+            log.warn("增加未读数失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 一条通知被标记为已读 (事务提交后)
+     */
+    public void decrement(Long recipientId) {
+        afterCommit(() -> redisTemplate.execute(DECREMENT_SCRIPT, List.of(KEY_PREFIX + recipientId)));
+    }
+
+    /**
+     * 全部标记为已读 (事务提交后删除计数器, 下次读取时从数据库重建)
+     * (不直接设为 0: 标记期间新写入的通知不会被漏计)
+     */
+    public void reset(Long recipientId) {
+        afterCommit(() -> redisTemplate.delete(KEY_PREFIX + recipientId));
+    }
+
+    private void afterCommit(Runnable action) {
+        Runnable safeAction = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.warn("更新未读数失败: {}", e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    safeAction.run();
+                }
+            });
+        } else {
+            safeAction.run();
+        }
+    }
+}
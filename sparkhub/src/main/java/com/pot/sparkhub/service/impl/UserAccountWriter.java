@@ -0,0 +1,69 @@
+package com.pot.sparkhub.service.impl;
+
+import com.pot.sparkhub.entity.User;
+import com.pot.sparkhub.mapper.UserMapper;
+import com.pot.sparkhub.security.JwtFilter;
+import com.pot.sparkhub.security.PrincipalCache;
+import com.pot.sparkhub.security.TokenDenylist;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 账号的写操作 (独立 Bean, 通过代理调用, 在各自的短事务中执行)
+ * 调用方在进入事务之前完成密码哈希 (BCrypt 可能在有界线程池中排队), 不在等待期间占用数据库连接
+ */
+@Component
+public class UserAccountWriter {
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    /**
+     * 插入新用户并分配一个角色 (同一事务中的两条 INSERT)
+     * 用户名/邮箱重复时抛出 DuplicateKeyException (由唯一索引保证, 不再事先查询)
+     * @param user 密码已经加密; 插入后回填 id
+     */
+    @Transactional
+    public void insertWithRole(User user, Long roleId) {
+        userMapper.insert(user);
+        userMapper.insertUserRole(user.getId(), roleId);
+    }
+
+    /**
+     * 更新密码并使该用户已签发的 Token 失效 (撤销失败时整个操作回滚)
+     * @param encodedPassword 已经加密的新密码
+     */
+    @Transactional
+    public void updatePassword(Long userId, String username, String encodedPassword) {
+        User userToUpdate = new User();
+        userToUpdate.setId(userId);
+        userToUpdate.setPassword(encodedPassword);
+        userMapper.updateUser(userToUpdate);
+
+        invalidateTokens(username);
+    }
+
+    /**
+     * 使用户的 Token 失效 (T人)
+     * (这依赖于 JwtFilter 中的 Redis 检查逻辑; 无状态模式下依赖撤销名单)
+     */
+    public void invalidateTokens(String username) {
+        String redisKey = JwtFilter.JWT_REDIS_KEY_PREFIX + username;
+        redisTemplate.delete(List.of(redisKey, JwtFilter.REFRESH_REDIS_KEY_PREFIX + username));
+        principalCache.evict(username);
+        tokenDenylist.revoke(username);
+    }
+}
@@ -2,18 +2,21 @@ package com.pot.sparkhub.service.impl;
 
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
+import com.pot.sparkhub.cache.RoleIdCache;
+import com.pot.sparkhub.common.Cursor;
+import com.pot.sparkhub.common.CursorPage;
 import com.pot.sparkhub.dto.UpdateEmailDTO;
 import com.pot.sparkhub.dto.UpdatePasswordDTO;
 import com.pot.sparkhub.dto.UserDTO;
 import com.pot.sparkhub.entity.Role;
 import com.pot.sparkhub.entity.User;
 import com.pot.sparkhub.mapper.UserMapper;
-import com.pot.sparkhub.security.JwtFilter;
+import com.pot.sparkhub.security.PrincipalCache;
+import com.pot.sparkhub.security.TokenDenylist;
 import com.pot.sparkhub.service.FileService;
 import com.pot.sparkhub.service.NotificationService;
 import com.pot.sparkhub.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -23,9 +26,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,15 +40,24 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
-    @Autowired
-    private StringRedisTemplate redisTemplate;
-
     @Autowired
     private FileService fileService;
 
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    @Autowired
+    private UserAccountWriter userAccountWriter;
+
+    @Autowired
+    private RoleIdCache roleIdCache;
+
     // 角色名称翻译 Map (用于通知)
     private static final Map<String, String> ROLE_NAME_MAP = Map.of(
             "ROLE_CREATOR", "发起者",
@@ -53,6 +65,10 @@ public class UserServiceImpl implements UserService {
             "ROLE_USER", "用户"
     );
 
+    // 按前缀搜索用户时游标值的前缀: 上一页停在用户名分支 / 邮箱分支
+    private static final String CURSOR_USERNAME = "u:";
+    private static final String CURSOR_EMAIL = "e:";
+
     /**
      * [Admin]
      */
@@ -62,78 +78,140 @@ public class UserServiceImpl implements UserService {
         // 1. 启动分页
         PageHelper.startPage(pageNum, pageSize);
 
-        // 2. 查询 (XML中已实现)
-        List<User> userList = userMapper.findAllWithRoles();
+        // 2. 查询本页用户 (XML中已实现)
+        List<User> userList = userMapper.findAllUsers();
+
+        // 3. 一次 IN 查询加载本页所有用户的角色
+        loadRoles(userList);
 
-        // 3. 封装 (User 实体已通过 @JsonIgnore 忽略密码)
+        // 4. 封装 (User 实体已通过 @JsonIgnore 忽略密码)
         return new PageInfo<>(userList);
     }
 
+    @Override
+    @PreAuthorize("hasRole('ROLE_ADMIN')") // 权限
+    public CursorPage<User> searchUsers(String q, String role, String after, int pageSize) {
+        pageSize = CursorPage.clampPageSize(pageSize);
+
+        // 1. 解析参数
+        String prefix = q == null || q.isBlank() ? null : escapeLike(q.trim());
+        Long roleId = null;
+        if (role != null && !role.isBlank()) {
+            roleId = roleIdCache.getRoleId(role);
+            if (roleId == null) {
+                throw new RuntimeException("角色不存在: " + role);
+            }
+        }
+        Cursor cursor = Cursor.decode(after);
+
+        // 2. seek 查询 (多查一条, 判断是否还有下一页), 用本页最后一条生成下一页游标
+        CursorPage<User> page = prefix == null
+                ? searchById(roleId, cursor, pageSize)
+                : searchByPrefix(prefix, roleId, cursor, pageSize);
+
+        // 3. 一次 IN 查询加载本页用户的角色
+        loadRoles(page.getList());
+        return page;
+    }
+
+    /**
+     * (辅助方法) 不按前缀搜索: 按 id 翻页, 游标的值为 id
+     */
+    private CursorPage<User> searchById(Long roleId, Cursor cursor, int pageSize) {
+        List<User> rows = userMapper.searchUsers(roleId, cursor == null ? 0L : cursor.asLong(), pageSize + 1);
+        return CursorPage.of(rows, pageSize, u -> Cursor.encode(u.getId(), u.getId()));
+    }
+
+    /**
+     * (辅助方法) 按前缀搜索: 先按用户名翻页, 用户名匹配完后接着按邮箱翻页
+     * 游标的值为 "u:{用户名}" 或 "e:{邮箱}", 下一页从对应的分支继续
+     */
+    private CursorPage<User> searchByPrefix(String prefix, Long roleId, Cursor cursor, int pageSize) {
+        String value = cursor == null ? CURSOR_USERNAME : cursor.getValue();
+        if (!value.startsWith(CURSOR_USERNAME) && !value.startsWith(CURSOR_EMAIL)) {
+            throw new RuntimeException("无效的分页游标");
+        }
+        String afterValue = cursor == null ? null : value.substring(CURSOR_USERNAME.length());
+
+        List<User> rows = new ArrayList<>();
+        if (value.startsWith(CURSOR_USERNAME)) {
+            rows.addAll(userMapper.searchUsersByUsername(prefix, roleId, afterValue, pageSize + 1));
+        }
+        int usernameCount = rows.size();
+        if (rows.size() <= pageSize) {
+            String afterEmail = value.startsWith(CURSOR_EMAIL) ? afterValue : null;
+            rows.addAll(userMapper.searchUsersByEmail(prefix, roleId, afterEmail, pageSize + 1 - rows.size()));
+        }
+        return CursorPage.of(rows, pageSize, u -> rows.indexOf(u) < usernameCount
+                ? Cursor.encode(CURSOR_USERNAME + u.getUsername(), u.getId())
+                : Cursor.encode(CURSOR_EMAIL + u.getEmail(), u.getId()));
+    }
+
+    /**
+     * (辅助方法) 一次 IN 查询加载一页用户的角色
+     */
+    private void loadRoles(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Role>> rolesByUserId = userMapper.findRolesByUserIds(
+                users.stream().map(User::getId).collect(Collectors.toList())
+        ).stream().collect(Collectors.toMap(User::getId, User::getRoles));
+        users.forEach(user -> user.setRoles(rolesByUserId.getOrDefault(user.getId(), new ArrayList<>())));
+    }
+
+    /**
+     * (辅助方法) 转义 LIKE 通配符, 用户输入只作为字面前缀
+     */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     @Override
     @Transactional // 确保操作原子性
     @PreAuthorize("hasRole('ROLE_ADMIN')") // 仅限管理员
     public User manageUserRole(Long userId, String roleName, boolean isAdd) {
 
-        // 1. 验证目标用户是否存在 (使用新的 findById)
-        // 解决了 'findById' 无法解析的错误
-        User targetUser = userMapper.findById(userId);
-        if (targetUser == null) {
-            // 抛出运行时异常，Spring 会将其包装为 HTTP 500 或由全局异常处理器处理
-            throw new RuntimeException("目标用户不存在，ID: " + userId);
-        }
-
-        // 2. 查找目标角色 ID (使用你提供的 findRoleIdByName)
-        // 解决了 'findRoleByName' 无法解析的错误
-        Long roleId = userMapper.findRoleIdByName(roleName);
+        // 1. 查找目标角色 ID (启动时已缓存)
+        Long roleId = roleIdCache.getRoleId(roleName);
         if (roleId == null) {
             throw new RuntimeException("目标角色不存在: " + roleName);
         }
 
-        // 3. 定义 userWithRoles 变量，确保后续 return 语句可用
-        //    (注: findByUsername 会触发 XML 中的复杂查询，包含角色)
-        User userWithRoles = userMapper.findByUsername(targetUser.getUsername());
-        List<Role> currentUserRoles = userWithRoles.getRoles();
+        // 2. 直接添加/移除, 由影响的行数判断角色是否真的发生了变化
+        //    (INSERT IGNORE: 已有该角色或用户不存在时插入 0 行)
+        int changed = isAdd
+                ? userMapper.insertUserRoleIgnore(userId, roleId)
+                : userMapper.deleteUserRole(userId, roleId);
 
-        boolean alreadyHasRole = currentUserRoles.stream()
-                // 使用我们刚刚查到的 roleId 来进行比较
-                .anyMatch(r -> Objects.equals(r.getId(), roleId));
-
-        // 4. 执行操作
-        if (isAdd) {
-            // --- 添加角色 ---
-            if (alreadyHasRole) {
-                return userWithRoles; // 已经有该角色，直接返回
-            }
-            // 使用查到的 roleId 进行插入
-            userMapper.insertUserRole(userId, roleId);
-
-            // 5. 发送通知 (添加角色)
-            String readableRoleName = ROLE_NAME_MAP.getOrDefault(roleName, roleName);
-            notificationService.sendSystemNotification(
-                    userId,
-                    "ROLE_UPDATED",
-                    String.format("恭喜！您已被授予 '%s' 权限。", readableRoleName),
-                    "/profile"
-            );
-        } else {
-            // --- 移除角色 ---
-            if (!alreadyHasRole) {
-                return userWithRoles; // 没有该角色，直接返回
-            }
-            // 使用查到的 roleId 进行删除
-            userMapper.deleteUserRole(userId, roleId);
-
-            // 5. 发送通知 (移除角色)
-            String readableRoleName = ROLE_NAME_MAP.getOrDefault(roleName, roleName);
-            notificationService.sendSystemNotification(
-                    userId,
-                    "ROLE_UPDATED",
-                    String.format("您的 '%s' 权限已被移除。", readableRoleName),
-                    "/profile"
-            );
+        // 3. 查询更新后的用户 (包含最新角色), 同时验证目标用户是否存在
+        User userWithRoles = userMapper.findWithRolesById(userId);
+        if (userWithRoles == null) {
+            // 抛出运行时异常，Spring 会将其包装为 HTTP 500 或由全局异常处理器处理
+            throw new RuntimeException("目标用户不存在，ID: " + userId);
+        }
+        if (changed == 0) {
+            return userWithRoles; // 已经有 (或本来就没有) 该角色，直接返回
         }
+
+        // 4. 发送通知
+        String readableRoleName = ROLE_NAME_MAP.getOrDefault(roleName, roleName);
+        notificationService.sendSystemNotification(
+                userId,
+                "ROLE_UPDATED",
+                isAdd
+                        ? String.format("恭喜！您已被授予 '%s' 权限。", readableRoleName)
+                        : String.format("您的 '%s' 权限已被移除。", readableRoleName),
+                "/profile"
+        );
+
+        // 5. 清除该用户的认证缓存 (下一个请求重新加载角色)
+        //    无状态模式: 撤销已签发的访问 Token, 客户端用 Refresh Token 换取带新角色的 Token
+        principalCache.evict(userWithRoles.getUsername());
+        tokenDenylist.revoke(userWithRoles.getUsername());
+
         // 6. 返回更新后的用户实体 (包含最新角色)
-        return userMapper.findByUsername(targetUser.getUsername());
+        return userWithRoles;
     }
 
     /**
@@ -149,11 +227,9 @@ public class UserServiceImpl implements UserService {
 
     /**
      * (辅助方法) 使当前用户的 Token 失效 (T人)
-     * (这依赖于 JwtFilter 中的 Redis 检查逻辑)
      */
     private void invalidateCurrentUserToken(String username) {
-        String redisKey = JwtFilter.JWT_REDIS_KEY_PREFIX + username;
-        redisTemplate.delete(redisKey);
+        userAccountWriter.invalidateTokens(username);
     }
 
     @Override
@@ -179,23 +255,19 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    @Transactional
     public void updatePassword(UpdatePasswordDTO passwordDTO) {
         User currentUser = getCurrentUser();
 
-        // 1. 验证旧密码
-        if (!passwordEncoder.matches(passwordDTO.getOldPassword(), currentUser.getPassword())) {
+        // 1. 验证旧密码 (从数据库读取: 无状态模式下的认证信息不含密码)
+        //    哈希计算都在事务之外: 排队等待哈希线程时不占用数据库连接
+        User storedUser = userMapper.findById(currentUser.getId());
+        if (storedUser == null || !passwordEncoder.matches(passwordDTO.getOldPassword(), storedUser.getPassword())) {
             throw new RuntimeException("旧密码不正确");
         }
+        String encodedPassword = passwordEncoder.encode(passwordDTO.getNewPassword());
 
-        // 2. 更新密码
-        User userToUpdate = new User();
-        userToUpdate.setId(currentUser.getId());
-        userToUpdate.setPassword(passwordEncoder.encode(passwordDTO.getNewPassword())); //
-        userMapper.updateUser(userToUpdate); //
-
-        // 3. [安全] 强制用户下线 (T人)
-        invalidateCurrentUserToken(currentUser.getUsername());
+        // 2. 在一个短事务中更新密码, 并强制用户下线 (T人)
+        userAccountWriter.updatePassword(currentUser.getId(), currentUser.getUsername(), encodedPassword);
     }
 
     @Override
@@ -216,6 +288,12 @@ public class UserServiceImpl implements UserService {
         // 更新 SecurityContext (让当前会话也立即生效)
         user.setAvatar(avatarUrl);
 
+        // 清除认证缓存 (其他节点重新加载)
+        principalCache.evict(user.getUsername());
+
+        // 无状态模式: 头像保存在访问 Token 中, 撤销已签发的 Token (客户端用 Refresh Token 换取带新头像的 Token)
+        tokenDenylist.revoke(user.getUsername());
+
         // 返回更新后的 DTO
         return getMyInfo();
     }
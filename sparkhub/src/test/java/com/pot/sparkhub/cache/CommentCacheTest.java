@@ -0,0 +1,180 @@
+package com.pot.sparkhub.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pot.sparkhub.dto.CommentDetailDTO;
+import com.pot.sparkhub.mapper.ProjectCommentMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * CommentCache 的重建与修补的交错:
+ * 修补失败后作废结构; 修补总是作废正在进行的重建; 其他请求刚完成重建时不再重建
+ * (用内存中的 key 集合模拟 Redis 中 loaded / building 标记的存在状态, 脚本按 CommentCache 中的定义分派)
+ */
+class CommentCacheTest {
+
+    private static final Long PROJECT_ID = 1L;
+    private static final String LOADED = "sparkhub:cache:comment:1:loaded";
+    private static final String BUILDING = "sparkhub:cache:comment:1:building";
+
+    private final Set<String> existing = new HashSet<>();
+    private boolean failPatch;
+    // 下一次读取时模拟 "读取脚本返回 nil 之后, 其他请求完成了重建"
+    private boolean otherBuildFinishesAfterRead;
+
+    private StringRedisTemplate redisTemplate;
+    private ProjectCommentMapper commentMapper;
+    private CommentCache commentCache;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        commentMapper = mock(ProjectCommentMapper.class);
+        when(commentMapper.findByProjectId(PROJECT_ID)).thenReturn(List.of());
+
+        doAnswer(invocation -> {
+            RedisScript<?> script = invocation.getArgument(0);
+            if (script == script("READ_LEX_SCRIPT") || script == script("READ_HOT_SCRIPT")) {
+                if (existing.contains(LOADED)) {
+                    return List.of();
+                }
+                if (otherBuildFinishesAfterRead) {
+                    otherBuildFinishesAfterRead = false;
+                    existing.add(LOADED);
+                }
+                return null;
+            }
+            if (script == script("LOCK_BUILD_SCRIPT")) {
+                if (existing.contains(LOADED)) {
+                    return 2L;
+                }
+                return existing.add(BUILDING) ? 1L : 0L;
+            }
+            if (script == script("ADD_SCRIPT") || script == script("LIKE_SCRIPT")) {
+                existing.remove(BUILDING);
+                if (!existing.contains(LOADED)) {
+                    return 0L;
+                }
+                if (failPatch) {
+                    throw new IllegalStateException("Redis 超时");
+                }
+                return 1L;
+            }
+            if (script == script("COMMIT_BUILD_SCRIPT")) {
+                if (!existing.remove(BUILDING)) {
+                    return 0L;
+                }
+                existing.add(LOADED);
+                return 1L;
+            }
+            throw new AssertionError("未知脚本");
+        }).when(redisTemplate).execute(any(RedisScript.class), anyList(), any(Object[].class));
+
+        doAnswer(invocation -> {
+            Collection<String> keys = invocation.getArgument(0);
+            keys.forEach(existing::remove);
+            return (long) keys.size();
+        }).when(redisTemplate).delete(anyCollection());
+
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of());
+
+        commentCache = new CommentCache();
+        ReflectionTestUtils.setField(commentCache, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(commentCache, "commentMapper", commentMapper);
+        ReflectionTestUtils.setField(commentCache, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(commentCache, "timeToLive", 1800000L);
+    }
+
+    private static Object script(String name) {
+        return ReflectionTestUtils.getField(CommentCache.class, name);
+    }
+
+    @Test
+    void successfulPatchKeepsStructure() {
+        existing.add(LOADED);
+
+        commentCache.patchLikeCount(PROJECT_ID, 10L, true, 1);
+
+        assertTrue(existing.contains(LOADED));
+        assertNotNull(commentCache.findTopLevel(PROJECT_ID, false, null, 10));
+        verify(commentMapper, never()).findByProjectId(PROJECT_ID);
+    }
+
+    @Test
+    void failedPatchForcesRebuild() {
+        existing.add(LOADED);
+        failPatch = true;
+
+        commentCache.patchLikeCount(PROJECT_ID, 10L, true, 1);
+
+        // loaded 被删除: 下一次读取时重建
+        assertFalse(existing.contains(LOADED));
+        assertFalse(existing.contains(BUILDING));
+
+        // 下一次读取从数据库重建, 之后的读取命中缓存
+        assertEquals(List.of(), commentCache.findTopLevel(PROJECT_ID, false, null, 10));
+        assertTrue(existing.contains(LOADED));
+        commentCache.findTopLevel(PROJECT_ID, false, null, 10);
+        verify(commentMapper, times(1)).findByProjectId(PROJECT_ID);
+    }
+
+    @Test
+    void noRebuildWhenAnotherRequestJustFinished() {
+        // 读取脚本返回 nil 后, 其他请求完成重建并释放了锁; 本请求取锁时发现已加载, 不再覆盖
+        otherBuildFinishesAfterRead = true;
+
+        assertEquals(List.of(), commentCache.findTopLevel(PROJECT_ID, false, null, 10));
+
+        verify(commentMapper, never()).findByProjectId(PROJECT_ID);
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+        assertFalse(existing.contains(BUILDING));
+    }
+
+    @Test
+    void patchDuringRebuildAbandonsIt() {
+        // 重建读取快照之后, 一条新评论提交并修补: 重建的快照不含这条评论, 不能标记为已加载
+        when(commentMapper.findByProjectId(PROJECT_ID)).thenAnswer(invocation -> {
+            commentCache.addComment(PROJECT_ID, comment(100L));
+            return List.of();
+        });
+
+        assertNull(commentCache.findTopLevel(PROJECT_ID, false, null, 10));
+
+        assertFalse(existing.contains(LOADED));
+        assertFalse(existing.contains(BUILDING));
+    }
+
+    private static CommentDetailDTO comment(Long id) {
+        CommentDetailDTO comment = new CommentDetailDTO();
+        comment.setId(id);
+        comment.setContent("新评论");
+        comment.setCreateTime(LocalDateTime.now());
+        comment.setUserId(2L);
+        return comment;
+    }
+}
@@ -0,0 +1,115 @@
+package com.pot.sparkhub.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.pot.sparkhub.entity.ProjectCommentLike;
+import com.pot.sparkhub.mapper.CommentLikeMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * CommentLikerIndex 的修补: 先修补本节点再广播, 忽略自己发出的消息, 修补后重新计算权重
+ */
+class CommentLikerIndexTest {
+
+    private static final Long COMMENT_ID = 10L;
+
+    private CommentLikeMapper likeMapper;
+    private StringRedisTemplate redisTemplate;
+    private CommentLikerIndex index;
+
+    @BeforeEach
+    void setUp() {
+        likeMapper = mock(CommentLikeMapper.class);
+        redisTemplate = mock(StringRedisTemplate.class);
+        when(likeMapper.findByCommentIds(anyList())).thenReturn(List.of(like(1L)));
+
+        index = new CommentLikerIndex();
+        ReflectionTestUtils.setField(index, "likeMapper", likeMapper);
+        ReflectionTestUtils.setField(index, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(index, "listenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(index, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(index, "maximumWeight", 67108864L);
+        ReflectionTestUtils.setField(index, "expireAfterWrite", 600000L);
+        index.init();
+    }
+
+    @Test
+    void patchesLocallyEvenWhenBroadcastFails() {
+        assertEquals(Set.of(COMMENT_ID), index.likedBy(1L, List.of(COMMENT_ID)));
+        doThrow(new IllegalStateException("Redis 不可用")).when(redisTemplate).convertAndSend(anyString(), anyString());
+
+        index.publishChange(COMMENT_ID, List.of(2L), List.of(1L));
+
+        assertEquals(Set.of(), index.likedBy(1L, List.of(COMMENT_ID)));
+        assertEquals(Set.of(COMMENT_ID), index.likedBy(2L, List.of(COMMENT_ID)));
+        verify(likeMapper, times(1)).findByCommentIds(anyList());
+    }
+
+    @Test
+    void ignoresOwnMessagesAndAppliesOthers() {
+        index.likedBy(1L, List.of(COMMENT_ID));
+        index.publishChange(COMMENT_ID, List.of(), List.of(1L));
+
+        // 自己发出的消息: 已在本地修补过, 再次收到不能重复执行 (此时 1 已被另一节点重新点赞)
+        index.onMessage(message("{\"commentId\":10,\"liked\":[1],\"unliked\":[]}", "other-node"), null);
+        String own = captureSent();
+        index.onMessage(new DefaultMessage(new byte[0], own.getBytes(StandardCharsets.UTF_8)), null);
+        assertEquals(Set.of(COMMENT_ID), index.likedBy(1L, List.of(COMMENT_ID)));
+    }
+
+    @Test
+    void reweighsBitmapAfterPatch() {
+        index.likedBy(1L, List.of(COMMENT_ID));
+        long before = weightedSize();
+
+        index.publishChange(COMMENT_ID, LongStream.range(2, 5000).boxed().toList(), List.of());
+
+        assertTrue(weightedSize() > before + 8000, "权重未随位图增长更新");
+    }
+
+    private String captureSent() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq(CommentLikerIndex.CHANGE_CHANNEL), captor.capture());
+        return captor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private long weightedSize() {
+        Cache<Long, LikerBitmap> bitmaps = (Cache<Long, LikerBitmap>) ReflectionTestUtils.getField(index, "bitmaps");
+        bitmaps.cleanUp();
+        return bitmaps.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+    }
+
+    private static DefaultMessage message(String json, String nodeId) {
+        return new DefaultMessage(new byte[0], (nodeId + "|" + json).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ProjectCommentLike like(Long userId) {
+        ProjectCommentLike like = new ProjectCommentLike();
+        like.setCommentId(COMMENT_ID);
+        like.setUserId(userId);
+        return like;
+    }
+}
@@ -0,0 +1,103 @@
+package com.pot.sparkhub.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LikerBitmap 的桶转换: 数组 -> 位图 (超过 4096 个), 位图 -> 数组 (删除到 4096 个), 以及跨桶的大 ID
+ */
+class LikerBitmapTest {
+
+    @Test
+    void arrayToBitmapAtBoundary() {
+        LikerBitmap bitmap = new LikerBitmap();
+        for (long id = 0; id < 4096 * 2; id += 2) {
+            bitmap.add(id);
+        }
+        int arraySize = bitmap.sizeInBytes();
+
+        // 第 4097 个值转为位图, 已有的值都保留 (满的数组桶与位图桶都是 8KB)
+        bitmap.add(1);
+        assertEquals(arraySize, bitmap.sizeInBytes());
+        for (long id = 0; id < 4096 * 2; id += 2) {
+            assertTrue(bitmap.contains(id), "丢失 " + id);
+        }
+        assertTrue(bitmap.contains(1));
+        assertFalse(bitmap.contains(3));
+    }
+
+    @Test
+    void bitmapToArrayAfterRemove() {
+        LikerBitmap bitmap = new LikerBitmap();
+        for (long id = 0; id <= 4096; id++) {
+            bitmap.add(id);
+        }
+        int bitmapSize = bitmap.sizeInBytes();
+
+        // 删除到 4096 个时转回数组, 剩下的值仍然有序可查
+        bitmap.remove(100);
+        assertEquals(bitmapSize, bitmap.sizeInBytes());
+        assertFalse(bitmap.contains(100));
+        for (long id = 0; id <= 4096; id++) {
+            assertEquals(id != 100, bitmap.contains(id), "错误 " + id);
+        }
+
+        // 转回数组后可以继续增删 (再次越过边界)
+        bitmap.add(100);
+        bitmap.add(5000);
+        assertTrue(bitmap.contains(100));
+        assertTrue(bitmap.contains(5000));
+        bitmap.remove(0);
+        assertFalse(bitmap.contains(0));
+        assertTrue(bitmap.contains(4096));
+    }
+
+    @Test
+    void idsAbove16BitsUseSeparateBuckets() {
+        LikerBitmap bitmap = new LikerBitmap();
+        long base = 1L << 16;
+        bitmap.add(7);
+        bitmap.add(base + 7);
+        bitmap.add((1L << 40) + 7);
+
+        assertTrue(bitmap.contains(7));
+        assertTrue(bitmap.contains(base + 7));
+        assertTrue(bitmap.contains((1L << 40) + 7));
+        assertFalse(bitmap.contains(2 * base + 7));
+
+        // 删除一个桶的最后一个值, 不影响低 16 位相同的其他桶
+        bitmap.remove(base + 7);
+        assertFalse(bitmap.contains(base + 7));
+        assertTrue(bitmap.contains(7));
+        assertTrue(bitmap.contains((1L << 40) + 7));
+    }
+
+    @Test
+    void matchesBitSetUnderRandomChanges() {
+        Random random = new Random(42);
+        LikerBitmap bitmap = new LikerBitmap();
+        BitSet expected = new BitSet();
+        // 值集中在两个桶内, 反复越过 4096 的边界
+        for (int i = 0; i < 200_000; i++) {
+            int id = random.nextInt(2 * 9000);
+            long value = id < 9000 ? id : (1L << 16) + id - 9000;
+            if (random.nextInt(100) < 50) {
+                bitmap.add(value);
+                expected.set(id);
+            } else {
+                bitmap.remove(value);
+                expected.clear(id);
+            }
+        }
+        for (int id = 0; id < 2 * 9000; id++) {
+            long value = id < 9000 ? id : (1L << 16) + id - 9000;
+            assertEquals(expected.get(id), bitmap.contains(value), "错误 " + value);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.pot.sparkhub.mapper;
+
+import com.pot.sparkhub.entity.Role;
+import com.pot.sparkhub.entity.User;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.boot.test.autoconfigure.MybatisTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * UserMapper 的角色加载: 每个方法发出的 SQL 语句数与用户数、角色数无关 (没有 N+1)
+ */
+@MybatisTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user-mapper-test;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:sql/user-mapper-test.sql"
+})
+class UserMapperTest {
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    /**
+     * 统计 MyBatis 准备的 SQL 语句数 (每条语句准备一次)
+     */
+    @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+    static class StatementCounter implements Interceptor {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            count.incrementAndGet();
+            return invocation.proceed();
+        }
+
+        int getCount() {
+            return count.get();
+        }
+
+        void reset() {
+            count.set(0);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+    }
+
+    @BeforeEach
+    void resetCounter() {
+        statementCounter.reset();
+    }
+
+    @Test
+    void findByUsernameLoadsRolesInOneStatement() {
+        User user = userMapper.findByUsername("admin");
+
+        assertEquals(1, statementCounter.getCount());
+        assertEquals(Set.of("ROLE_USER", "ROLE_CREATOR", "ROLE_ADMIN"), roleNames(user));
+    }
+
+    @Test
+    void findByUsernameWithoutRoles() {
+        User user = userMapper.findByUsername("norole");
+
+        assertEquals(1, statementCounter.getCount());
+        assertEquals("norole", user.getUsername());
+        assertTrue(user.getRoles().isEmpty());
+        assertNull(userMapper.findByUsername("nobody"));
+    }
+
+    @Test
+    void findWithRolesByIdLoadsRolesInOneStatement() {
+        User user = userMapper.findWithRolesById(2L);
+
+        assertEquals(1, statementCounter.getCount());
+        assertEquals("creator", user.getUsername());
+        assertEquals(Set.of("ROLE_USER", "ROLE_CREATOR"), roleNames(user));
+    }
+
+    @Test
+    void adminListLoadsRolesWithOneBatchQuery() {
+        List<User> users = userMapper.findAllUsers();
+        List<User> roles = userMapper.findRolesByUserIds(users.stream().map(User::getId).collect(Collectors.toList()));
+
+        // 7 个用户: 分页查询 1 条 + 角色 IN 查询 1 条
+        assertEquals(7, users.size());
+        assertEquals(2, statementCounter.getCount());
+        assertEquals(6, roles.size()); // 没有角色的用户不返回
+        User admin = roles.stream().filter(u -> u.getId() == 1L).findFirst().orElseThrow();
+        assertEquals(Set.of("ROLE_USER", "ROLE_CREATOR", "ROLE_ADMIN"), roleNames(admin));
+    }
+
+    @Test
+    void searchByUsernamePrefixSeeksOnUsername() {
+        // "alice" 匹配用户名 alice、alice_2, 按用户名排序
+        assertEquals(List.of(3L, 6L), ids(userMapper.searchUsersByUsername("alice", null, null, 10)));
+        assertEquals(List.of(6L), ids(userMapper.searchUsersByUsername("alice", null, "alice", 10)));
+        // 转义后的 "_" 只匹配字面下划线
+        assertEquals(List.of(6L), ids(userMapper.searchUsersByUsername("alice\\_", null, null, 10)));
+        assertEquals(3, statementCounter.getCount()); // 每次搜索一条语句
+    }
+
+    @Test
+    void searchByEmailPrefixSkipsUsernameMatches() {
+        // alice@sparkhub.com 的用户名已匹配 (在用户名分支中返回), 只剩 alice.c@... (carol)
+        assertEquals(List.of(7L), ids(userMapper.searchUsersByEmail("alice", null, null, 10)));
+        assertEquals(List.of(), ids(userMapper.searchUsersByEmail("alice", null, "alice.c@example.com", 10)));
+        // 含 "@" 的前缀只能匹配邮箱
+        assertEquals(List.of(2L), ids(userMapper.searchUsersByEmail("creator@", null, null, 10)));
+    }
+
+    @Test
+    void searchFiltersByRole() {
+        assertEquals(List.of(1L, 2L, 6L), ids(userMapper.searchUsers(2L, 0L, 10)));
+        assertEquals(List.of(6L), ids(userMapper.searchUsersByUsername("alice", 2L, null, 10)));
+        assertEquals(List.of(), ids(userMapper.searchUsersByEmail("alice", 2L, null, 10)));
+    }
+
+    @Test
+    void searchSeeksAfterLastId() {
+        assertEquals(List.of(1L, 2L), ids(userMapper.searchUsers(null, 0L, 2)));
+        assertEquals(List.of(3L, 4L), ids(userMapper.searchUsers(null, 2L, 2)));
+        assertEquals(List.of(4L, 6L), ids(userMapper.searchUsers(1L, 3L, 2)));
+    }
+
+    private static List<Long> ids(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    private static Set<String> roleNames(User user) {
+        return user.getRoles().stream().map(Role::getName).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,98 @@
+package com.pot.sparkhub.scheduler;
+
+import com.pot.sparkhub.service.impl.CommentLikeBuffer;
+import com.pot.sparkhub.service.impl.CommentLikeFlusher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * CommentLikeScheduler 的写回: 全部成功才确认批次, 任一失败则释放租约, 下一轮重试
+ */
+class CommentLikeSchedulerTest {
+
+    private CommentLikeBuffer likeBuffer;
+    private CommentLikeFlusher likeFlusher;
+    private CommentLikeScheduler scheduler;
+
+    private final CommentLikeBuffer.Batch batch = new CommentLikeBuffer.Batch("batch-1",
+            Map.of(10L, Map.of(1L, true, 2L, false), 11L, Map.of(3L, true)));
+
+    @BeforeEach
+    void setUp() {
+        likeBuffer = mock(CommentLikeBuffer.class);
+        likeFlusher = mock(CommentLikeFlusher.class);
+        scheduler = new CommentLikeScheduler();
+        ReflectionTestUtils.setField(scheduler, "likeBuffer", likeBuffer);
+        ReflectionTestUtils.setField(scheduler, "likeFlusher", likeFlusher);
+    }
+
+    @Test
+    void completesBatchWhenAllCommentsFlushed() {
+        when(likeBuffer.takePending()).thenReturn(batch);
+
+        scheduler.flushCommentLikes();
+
+        verify(likeFlusher).flushComment(10L, List.of(1L), List.of(2L));
+        verify(likeFlusher).flushComment(11L, List.of(3L), List.of());
+        verify(likeBuffer).completeFlush(batch);
+        verify(likeBuffer, never()).releaseBatch(any());
+    }
+
+    @Test
+    void releasesBatchWhenAnyCommentFails() {
+        when(likeBuffer.takePending()).thenReturn(batch);
+        when(likeFlusher.flushComment(eq(10L), anyList(), anyList())).thenThrow(new IllegalStateException("数据库超时"));
+
+        scheduler.flushCommentLikes();
+
+        // 其他评论照常写回, 整批释放后重试 (写回是幂等的)
+        verify(likeFlusher).flushComment(11L, List.of(3L), List.of());
+        verify(likeBuffer).releaseBatch(batch);
+        verify(likeBuffer, never()).completeFlush(any());
+    }
+
+    @Test
+    void retriesTheReleasedBatchOnTheNextRound() {
+        when(likeBuffer.takePending()).thenReturn(batch, batch);
+        when(likeFlusher.flushComment(eq(10L), anyList(), anyList()))
+                .thenThrow(new IllegalStateException("数据库超时"))
+                .thenReturn(1);
+
+        scheduler.flushCommentLikes();
+        scheduler.flushCommentLikes();
+
+        verify(likeBuffer).releaseBatch(batch);
+        verify(likeBuffer).completeFlush(batch);
+    }
+
+    @Test
+    void doesNothingWithoutABatch() {
+        when(likeBuffer.takePending()).thenReturn(null);
+
+        scheduler.flushCommentLikes();
+
+        verify(likeFlusher, never()).flushComment(any(), anyList(), anyList());
+        verify(likeBuffer, never()).completeFlush(any());
+    }
+
+    @Test
+    void keepsTheLeaseWhenTakeFails() {
+        when(likeBuffer.takePending()).thenThrow(new IllegalStateException("Redis 不可用"));
+
+        scheduler.flushCommentLikes();
+
+        verify(likeBuffer, never()).releaseBatch(any());
+    }
+}
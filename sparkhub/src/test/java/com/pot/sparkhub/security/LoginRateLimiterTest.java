@@ -0,0 +1,74 @@
+package com.pot.sparkhub.security;
+
+import com.pot.sparkhub.common.TooManyRequestsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * LoginRateLimiter 的令牌桶 (GCRA): 突发量、按速率恢复, 以及用户名桶只在校验失败时取令牌
+ * (IP: 突发 3, 每分钟 6 个 = 每 10 秒一个; 用户名: 突发 2, 每分钟 2 个 = 每 30 秒一个)
+ */
+class LoginRateLimiterTest {
+
+    private long now = TimeUnit.HOURS.toNanos(1);
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new LoginRateLimiter();
+        ReflectionTestUtils.setField(limiter, "clock", (LongSupplier) () -> now);
+        ReflectionTestUtils.setField(limiter, "ipBurst", 3);
+        ReflectionTestUtils.setField(limiter, "ipPerMinute", 6);
+        ReflectionTestUtils.setField(limiter, "usernameBurst", 2);
+        ReflectionTestUtils.setField(limiter, "usernamePerMinute", 2);
+        ReflectionTestUtils.setField(limiter, "maximumSize", 1000L);
+        limiter.init();
+    }
+
+    @Test
+    void ipBurstThenRefillAtRate() {
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("1.1.1.1", "user" + i);
+        }
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> limiter.acquire("1.1.1.1", "other"));
+        assertEquals(10, e.getRetryAfterSeconds());
+
+        // 其他 IP 不受影响
+        assertDoesNotThrow(() -> limiter.acquire("2.2.2.2", "other"));
+
+        // 10 秒后恢复一个令牌, 只够一次
+        now += TimeUnit.SECONDS.toNanos(10);
+        limiter.acquire("1.1.1.1", "other");
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire("1.1.1.1", "other"));
+    }
+
+    @Test
+    void successfulLoginsDoNotChargeUsername() {
+        // 用户名突发量只有 2, 但成功的登录不取令牌 (每次换 IP, 排除 IP 桶的影响)
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire("10.0.0." + i, "alice");
+        }
+    }
+
+    @Test
+    void failuresChargeUsernameCaseInsensitively() {
+        limiter.recordFailure("Alice");
+        limiter.recordFailure("alice");
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> limiter.acquire("10.0.0.1", "ALICE"));
+        assertEquals(30, e.getRetryAfterSeconds());
+
+        now += TimeUnit.SECONDS.toNanos(30);
+        assertDoesNotThrow(() -> limiter.acquire("10.0.0.2", "alice"));
+    }
+}
@@ -0,0 +1,53 @@
+package com.pot.sparkhub.security;
+
+import com.pot.sparkhub.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+/**
+ * PrincipalCache 在事务中的清除: 提交前重新放入的旧条目在提交后被清除
+ */
+class PrincipalCacheTest {
+
+    private PrincipalCache principalCache;
+
+    @BeforeEach
+    void setUp() {
+        principalCache = new PrincipalCache();
+        ReflectionTestUtils.setField(principalCache, "redisTemplate", mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(principalCache, "listenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(principalCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(principalCache, "expireAfterWrite", 60000L);
+        principalCache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void evictsAgainAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        principalCache.evict("alice");
+
+        // 提交前, 另一个请求读到了未提交修改之前的用户数据并放入缓存
+        principalCache.put("alice", "token", new User(), principalCache.stamp());
+        assertNotNull(principalCache.get("alice", "token"));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertNull(principalCache.get("alice", "token"));
+    }
+}
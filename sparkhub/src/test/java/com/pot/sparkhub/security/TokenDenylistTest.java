@@ -0,0 +1,150 @@
+package com.pot.sparkhub.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * TokenDenylist: 布隆过滤器 (无漏判, 误判率受控), 重建期间收到的撤销不丢失, 撤销时刻与签发时间的比较
+ * (Redis 中的撤销记录用内存 Map 模拟)
+ */
+class TokenDenylistTest {
+
+    private static final String KEY_PREFIX = "sparkhub:jwt:revoked:";
+
+    private final Map<String, String> records = new HashMap<>();
+    private StringRedisTemplate redisTemplate;
+    private ValueOperations<String, String> valueOps;
+    private TokenDenylist denylist;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        valueOps = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOps);
+        doAnswer(invocation -> records.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(valueOps).set(anyString(), anyString(), any(Duration.class));
+        when(valueOps.get(anyString())).thenAnswer(invocation -> records.get(invocation.<String>getArgument(0)));
+
+        JwtUtil jwtUtil = mock(JwtUtil.class);
+        when(jwtUtil.isStateless()).thenReturn(true);
+        when(jwtUtil.getAccessExpiration()).thenReturn(900000L);
+
+        denylist = new TokenDenylist();
+        ReflectionTestUtils.setField(denylist, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(denylist, "listenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(denylist, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(denylist, "expectedInsertions", 1000);
+        denylist.init();
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        for (int i = 0; i < 1000; i++) {
+            denylist.onMessage(message("revoked" + i), null);
+        }
+        // 已加入的全部 "可能在" (会查 Redis)
+        for (int i = 0; i < 1000; i++) {
+            denylist.isRevoked("revoked" + i, 0);
+        }
+        verify(valueOps, times(1000)).get(anyString());
+
+        // 未加入的只有约 1% 会查 Redis (按预期容量填满时的误判率, 留出余量)
+        for (int i = 0; i < 10000; i++) {
+            assertFalse(denylist.isRevoked("active" + i, 0));
+        }
+        verify(valueOps, atMost(1000 + 300)).get(anyString());
+    }
+
+    @Test
+    void tokenIssuedBeforeRevokeInSameSecondIsRevoked() {
+        long issuedAt = System.currentTimeMillis();
+        denylist.revoke("alice");
+        long revokedAt = Long.parseLong(records.get(KEY_PREFIX + "alice"));
+
+        // 撤销之前签发 (同一秒内) 的 Token 失效; 撤销之后签发的不受影响
+        assertTrue(denylist.isRevoked("alice", issuedAt));
+        assertTrue(denylist.isRevoked("alice", revokedAt - 1));
+        assertTrue(denylist.isRevoked("alice", revokedAt));
+        assertFalse(denylist.isRevoked("alice", revokedAt + 1));
+
+        // 旧版本写入的记录 (取整到秒) 仍按毫秒比较
+        records.put(KEY_PREFIX + "bob", "5000");
+        denylist.onMessage(message("bob"), null);
+        assertTrue(denylist.isRevoked("bob", 4999));
+        assertFalse(denylist.isRevoked("bob", 5001));
+    }
+
+    @Test
+    void revokeReceivedDuringRebuildSurvives() {
+        records.put(KEY_PREFIX + "old", "1");
+        Cursor<String> cursor = scanCursor(List.of(KEY_PREFIX + "old"), () -> {
+            // 扫描进行中 (新过滤器还未替换), 其他节点撤销了 carol
+            records.put(KEY_PREFIX + "carol", String.valueOf(Long.MAX_VALUE));
+            denylist.onMessage(message("carol"), null);
+        });
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+
+        denylist.rebuild();
+
+        assertTrue(denylist.isRevoked("carol", 0));
+        assertTrue(denylist.isRevoked("old", 0));
+        assertNull(ReflectionTestUtils.getField(denylist, "rebuildReceived"));
+    }
+
+    @Test
+    void rebuildDropsExpiredRecords() {
+        denylist.onMessage(message("expired"), null);
+        Cursor<String> cursor = scanCursor(List.of(), () -> { });
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+
+        denylist.rebuild();
+
+        // 撤销记录已过期: 新过滤器中没有该用户名, 不再查询 Redis
+        assertFalse(denylist.isRevoked("expired", 0));
+        verify(valueOps, never()).get(KEY_PREFIX + "expired");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cursor<String> scanCursor(List<String> keys, Runnable duringScan) {
+        Cursor<String> cursor = mock(Cursor.class);
+        doAnswer(invocation -> {
+            Consumer<String> action = invocation.getArgument(0);
+            keys.forEach(action);
+            duringScan.run();
+            return null;
+        }).when(cursor).forEachRemaining(any());
+        return cursor;
+    }
+
+    private static DefaultMessage message(String username) {
+        return new DefaultMessage(new byte[0], username.getBytes(StandardCharsets.UTF_8));
+    }
+}
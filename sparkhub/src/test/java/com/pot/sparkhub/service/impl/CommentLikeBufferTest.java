@@ -0,0 +1,103 @@
+package com.pot.sparkhub.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * CommentLikeBuffer 的批次领取、确认和释放 (Redis 脚本本身由 Redis 执行, 这里验证传入的参数和对结果的处理)
+ */
+class CommentLikeBufferTest {
+
+    private static final String PENDING = "sparkhub:comment:like:pending";
+    private static final String BATCHES = "sparkhub:comment:like:batches";
+    private static final String BATCH = "sparkhub:comment:like:flushing:1760000000000:abc";
+
+    private StringRedisTemplate redisTemplate;
+    private ZSetOperations<String, String> zSetOps;
+    private CommentLikeBuffer likeBuffer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        zSetOps = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOps);
+
+        likeBuffer = new CommentLikeBuffer();
+        ReflectionTestUtils.setField(likeBuffer, "redisTemplate", redisTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void takePendingLeasesANewBatch() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(List.of(BATCH, "10:1", "1", "10:2", "0", "11:1", "1"));
+
+        long before = System.currentTimeMillis();
+        CommentLikeBuffer.Batch batch = likeBuffer.takePending();
+
+        // 批次 key 来自脚本 (可能是重新领取的旧批次), 操作按评论分组
+        assertEquals(BATCH, batch.key());
+        assertEquals(Map.of(10L, Map.of(1L, true, 2L, false), 11L, Map.of(1L, true)), batch.ops());
+
+        // 参数: 待写回 Hash 和批次 ZSet; 当前时间、租约、新批次 key
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(redisTemplate).execute(any(RedisScript.class), keys.capture(), args.capture());
+        assertEquals(List.of(PENDING, BATCHES), keys.getValue());
+        Object[] values = args.getValue();
+        assertTrue(Long.parseLong((String) values[0]) >= before);
+        assertEquals("60000", values[1]);
+        assertTrue(((String) values[2]).startsWith("sparkhub:comment:like:flushing:"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void takePendingReturnsNullWhenNothingToTake() {
+        // 没有待写回的操作, 或其他节点的批次仍在租约中
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(List.of());
+
+        assertNull(likeBuffer.takePending());
+    }
+
+    @Test
+    void completeFlushDeletesOnlyItsOwnBatch() {
+        CommentLikeBuffer.Batch batch = new CommentLikeBuffer.Batch(BATCH, Map.of());
+
+        likeBuffer.completeFlush(batch);
+
+        verify(redisTemplate).delete(BATCH);
+        verify(redisTemplate, never()).delete(PENDING);
+        verify(zSetOps).remove(BATCHES, BATCH);
+    }
+
+    @Test
+    void releaseBatchExpiresTheLease() {
+        CommentLikeBuffer.Batch batch = new CommentLikeBuffer.Batch(BATCH, Map.of());
+
+        likeBuffer.releaseBatch(batch);
+
+        // 分数 0 = 租约已到期, 下一轮由任一节点重新领取; 批次内容保留
+        verify(zSetOps).add(BATCHES, BATCH, 0);
+        verify(redisTemplate, never()).delete(eq(BATCH));
+    }
+}
@@ -0,0 +1,65 @@
+package com.pot.sparkhub.service.impl;
+
+import com.pot.sparkhub.entity.ProjectReward;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * RewardStockReserver 的计数器失效: 修改回报的事务提交后才删除计数器, 回滚时保留
+ */
+class RewardStockReserverTest {
+
+    private StringRedisTemplate redisTemplate;
+    private RewardStockReserver reserver;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = mock(StringRedisTemplate.class);
+        reserver = new RewardStockReserver();
+        ReflectionTestUtils.setField(reserver, "redisTemplate", redisTemplate);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void deletesCountersAfterCommit() {
+        reserver.invalidate(List.of(reward(1L), reward(2L)));
+        verify(redisTemplate, never()).delete(anyCollection());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(redisTemplate).delete((Collection<String>) List.of("sparkhub:stock:reward:1", "sparkhub:stock:reward:2"));
+    }
+
+    @Test
+    void keepsCountersOnRollback() {
+        reserver.invalidate(List.of(reward(1L)));
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        verify(redisTemplate, never()).delete(anyCollection());
+    }
+
+    private static ProjectReward reward(Long id) {
+        ProjectReward reward = new ProjectReward();
+        reward.setId(id);
+        reward.setStock(10);
+        return reward;
+    }
+}
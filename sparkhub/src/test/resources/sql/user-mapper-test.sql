@@ -0,0 +1,51 @@
+-- UserMapperTest 使用的表结构和数据 (H2, MySQL 兼容模式)
+DROP TABLE IF EXISTS user_role;
+DROP TABLE IF EXISTS role;
+DROP TABLE IF EXISTS user;
+
+CREATE TABLE role (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  name VARCHAR(50) NOT NULL,
+  PRIMARY KEY (id),
+  UNIQUE KEY uk_role_name (name)
+);
+
+CREATE TABLE user (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  username VARCHAR(100) NOT NULL,
+  password VARCHAR(255) NOT NULL,
+  email VARCHAR(100) DEFAULT NULL,
+  avatar VARCHAR(255) DEFAULT NULL,
+  create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  UNIQUE KEY uk_user_username (username),
+  UNIQUE KEY uk_user_email (email)
+);
+
+CREATE TABLE user_role (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  user_id BIGINT NOT NULL,
+  role_id BIGINT NOT NULL,
+  PRIMARY KEY (id),
+  UNIQUE KEY uk_user_role (user_id, role_id),
+  KEY idx_user_role_role (role_id, user_id)
+);
+
+INSERT INTO role (id, name) VALUES (1, 'ROLE_USER'), (2, 'ROLE_CREATOR'), (3, 'ROLE_ADMIN');
+
+INSERT INTO user (id, username, password, email) VALUES
+(1, 'admin', 'x', 'admin@sparkhub.com'),
+(2, 'creator', 'x', 'creator@sparkhub.com'),
+(3, 'alice', 'x', 'alice@sparkhub.com'),
+(4, 'bob', 'x', 'bob@sparkhub.com'),
+(5, 'norole', 'x', 'norole@sparkhub.com'),
+(6, 'alice_2', 'x', 'a2@example.com'),
+(7, 'carol', 'x', 'alice.c@example.com');
+
+INSERT INTO user_role (user_id, role_id) VALUES
+(1, 1), (1, 2), (1, 3),
+(2, 1), (2, 2),
+(3, 1),
+(4, 1),
+(6, 1), (6, 2),
+(7, 1);